@@ -0,0 +1,316 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.api.WorldLocation;
+import com.dreamcove.minecraft.raids.config.Point;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * BinaryLocationStore keeps return locations as fixed-width records in a memory-mapped file.
+ * A record holds the player UUID as two longs, an id into the table of world names, the
+ * coordinates and the direction; records are looked up through an open-addressing index of
+ * primitive arrays, so neither the index nor the records create objects per player.
+ * <p>
+ * Records are packed: removing one moves the last record into its place. Writes go to the
+ * mapped pages right away and reach the disk when {@link #flush()} is called. The system may
+ * write dirty pages in any order, so after a crash changes since the last flush can be lost
+ * or only partly on disk, including a count that covers a record that is not.
+ * <p>
+ * Growing the file maps it again; the old mapping stays until the garbage collector releases
+ * it, as Java offers no way to unmap. World names are only ever appended to the
+ * {@code .worlds} file, which holds one line per world a player ever returned to.
+ */
+public class BinaryLocationStore implements LocationStore {
+    private static final int MAGIC = 0x52414C43;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+    private static final int RECORD_SIZE = 8 + 8 + 4 + 8 * 3 + 4 + 4;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final File file;
+    private final File worldsFile;
+    private final RandomAccessFile raf;
+    private final List<String> worldNames = new ArrayList<>();
+    private final Map<String, Integer> worldIds = new HashMap<>();
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int count;
+
+    // Open-addressing index: slots hold the record number plus one, 0 is free
+    private long[] keyHigh;
+    private long[] keyLow;
+    private int[] slots;
+    private int mask;
+
+    public BinaryLocationStore(File file) throws IOException {
+        this.file = file;
+        this.worldsFile = new File(file.getParentFile(), file.getName() + ".worlds");
+
+        file.getParentFile().mkdirs();
+        raf = new RandomAccessFile(file, "rw");
+
+        try {
+            open();
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private void open() throws IOException {
+        if (worldsFile.exists()) {
+            for (String name : Files.readAllLines(worldsFile.toPath(), StandardCharsets.UTF_8)) {
+                worldIds.put(name, worldNames.size());
+                worldNames.add(name);
+            }
+        }
+
+        long length = raf.length();
+        capacity = (int) Math.max(INITIAL_CAPACITY, (length - HEADER_SIZE) / RECORD_SIZE);
+        map();
+
+        if (length < HEADER_SIZE) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(COUNT_OFFSET, 0);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(file.getName() + " is not a location store");
+        }
+
+        count = buffer.getInt(COUNT_OFFSET);
+        if (count < 0 || count > capacity) {
+            throw new IOException(file.getName() + " is damaged, it claims " + count + " records");
+        }
+
+        resizeIndex(count);
+        for (int i = 0; i < count; i++) {
+            int offset = offset(i);
+            indexPut(buffer.getLong(offset), buffer.getLong(offset + 8), i);
+        }
+    }
+
+    private void map() throws IOException {
+        buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+    }
+
+    private static int offset(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    @Override
+    public synchronized void put(UUID player, WorldLocation location) throws IOException {
+        int record = indexGet(player.getMostSignificantBits(), player.getLeastSignificantBits());
+
+        if (record < 0) {
+            if (count == capacity) {
+                buffer.force();
+                capacity *= 2;
+                map();
+            }
+            if ((count + 1) * 4L > slots.length * 3L) {
+                resizeIndex(count + 1);
+            }
+
+            record = count;
+            indexPut(player.getMostSignificantBits(), player.getLeastSignificantBits(), record);
+        }
+
+        int offset = offset(record);
+        buffer.putLong(offset, player.getMostSignificantBits());
+        buffer.putLong(offset + 8, player.getLeastSignificantBits());
+        buffer.putInt(offset + 16, worldId(location.getWorldName()));
+        buffer.putDouble(offset + 20, location.getPoint().getX());
+        buffer.putDouble(offset + 28, location.getPoint().getY());
+        buffer.putDouble(offset + 36, location.getPoint().getZ());
+        buffer.putFloat(offset + 44, location.getYaw());
+        buffer.putFloat(offset + 48, location.getPitch());
+
+        if (record == count) {
+            buffer.putInt(COUNT_OFFSET, ++count);
+        }
+    }
+
+    private int worldId(String worldName) throws IOException {
+        Integer id = worldIds.get(worldName);
+
+        if (id == null) {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(worldsFile, true), StandardCharsets.UTF_8)) {
+                writer.write(worldName + "\n");
+            }
+
+            id = worldNames.size();
+            worldIds.put(worldName, id);
+            worldNames.add(worldName);
+        }
+
+        return id;
+    }
+
+    @Override
+    public synchronized WorldLocation get(UUID player) {
+        int record = indexGet(player.getMostSignificantBits(), player.getLeastSignificantBits());
+
+        return record < 0 ? null : read(record);
+    }
+
+    private WorldLocation read(int record) {
+        int offset = offset(record);
+
+        return new WorldLocation(
+                worldNames.get(buffer.getInt(offset + 16)),
+                new Point(buffer.getDouble(offset + 20), buffer.getDouble(offset + 28), buffer.getDouble(offset + 36)),
+                buffer.getFloat(offset + 44),
+                buffer.getFloat(offset + 48));
+    }
+
+    @Override
+    public synchronized WorldLocation remove(UUID player) {
+        int record = indexRemove(player.getMostSignificantBits(), player.getLeastSignificantBits());
+
+        if (record < 0) {
+            return null;
+        }
+
+        WorldLocation result = read(record);
+
+        int last = count - 1;
+        if (record != last) {
+            int from = offset(last);
+            int to = offset(record);
+
+            for (int i = 0; i < RECORD_SIZE; i += 4) {
+                buffer.putInt(to + i, buffer.getInt(from + i));
+            }
+
+            indexRemove(buffer.getLong(to), buffer.getLong(to + 8));
+            indexPut(buffer.getLong(to), buffer.getLong(to + 8), record);
+        }
+
+        buffer.putInt(COUNT_OFFSET, --count);
+
+        return result;
+    }
+
+    @Override
+    public synchronized int size() {
+        return count;
+    }
+
+    @Override
+    public synchronized void forEach(BiConsumer<UUID, WorldLocation> action) {
+        for (int i = 0; i < count; i++) {
+            int offset = offset(i);
+            action.accept(new UUID(buffer.getLong(offset), buffer.getLong(offset + 8)), read(i));
+        }
+    }
+
+    /**
+     * Writes changed pages to disk.
+     */
+    @Override
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        raf.close();
+    }
+
+    private void resizeIndex(int entries) {
+        // Keep the index at most three quarters full
+        int size = Math.max(16, Integer.highestOneBit(Math.max(1, entries * 4 / 3)) << 1);
+        long[] oldHigh = keyHigh;
+        long[] oldLow = keyLow;
+        int[] oldSlots = slots;
+
+        keyHigh = new long[size];
+        keyLow = new long[size];
+        slots = new int[size];
+        mask = size - 1;
+
+        if (oldSlots != null) {
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] != 0) {
+                    indexPut(oldHigh[i], oldLow[i], oldSlots[i] - 1);
+                }
+            }
+        }
+    }
+
+    private int hash(long high, long low) {
+        long h = (high ^ low) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void indexPut(long high, long low, int record) {
+        int i = hash(high, low);
+
+        while (slots[i] != 0 && (keyHigh[i] != high || keyLow[i] != low)) {
+            i = (i + 1) & mask;
+        }
+
+        keyHigh[i] = high;
+        keyLow[i] = low;
+        slots[i] = record + 1;
+    }
+
+    private int indexFind(long high, long low) {
+        int i = hash(high, low);
+
+        while (slots[i] != 0) {
+            if (keyHigh[i] == high && keyLow[i] == low) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    private int indexGet(long high, long low) {
+        int i = indexFind(high, low);
+
+        return i < 0 ? -1 : slots[i] - 1;
+    }
+
+    private int indexRemove(long high, long low) {
+        int i = indexFind(high, low);
+
+        if (i < 0) {
+            return -1;
+        }
+
+        int result = slots[i] - 1;
+
+        // Shift later entries of the probe run back so lookups never stop at a hole
+        int hole = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (slots[j] == 0) {
+                break;
+            }
+
+            int home = hash(keyHigh[j], keyLow[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keyHigh[hole] = keyHigh[j];
+                keyLow[hole] = keyLow[j];
+                slots[hole] = slots[j];
+                hole = j;
+            }
+        }
+
+        slots[hole] = 0;
+
+        return result;
+    }
+}
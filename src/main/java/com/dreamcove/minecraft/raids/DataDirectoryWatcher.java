@@ -0,0 +1,119 @@
+package com.dreamcove.minecraft.raids;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * DataDirectoryWatcher reports changes to config.yml and to the dungeon zips on a background
+ * thread. Changes are collected until none has been seen for the debounce interval, so an
+ * editor saving in several steps or a large zip being copied in causes a single reload.
+ */
+public class DataDirectoryWatcher implements Closeable {
+    private final Path configFile;
+    private final Path dungeonDirectory;
+    private final long debounceMillis;
+    private final Runnable onConfigChange;
+    private final Runnable onDungeonChange;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    public DataDirectoryWatcher(File configFile, File dungeonDirectory, long debounceMillis,
+                                Runnable onConfigChange, Runnable onDungeonChange) throws IOException {
+        this.configFile = configFile.toPath().toAbsolutePath();
+        this.dungeonDirectory = dungeonDirectory.toPath().toAbsolutePath();
+        this.debounceMillis = debounceMillis;
+        this.onConfigChange = onConfigChange;
+        this.onDungeonChange = onDungeonChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        WatchEvent.Kind<?>[] kinds = {
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE
+        };
+
+        try {
+            this.configFile.getParent().register(watchService, kinds);
+            this.dungeonDirectory.register(watchService, kinds);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+
+        this.thread = new Thread(this::watch, "PartyRaids-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(DataDirectoryWatcher.class.getName());
+    }
+
+    private void watch() {
+        boolean configChanged = false;
+        boolean dungeonsChanged = false;
+        long deadline = 0;
+
+        try {
+            while (true) {
+                WatchKey key = deadline == 0
+                        ? watchService.take()
+                        : watchService.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+
+                if (key == null) {
+                    // Quiet for the whole interval
+                    if (dungeonsChanged) {
+                        notify(onDungeonChange);
+                    }
+                    if (configChanged) {
+                        notify(onConfigChange);
+                    }
+
+                    configChanged = false;
+                    dungeonsChanged = false;
+                    deadline = 0;
+                    continue;
+                }
+
+                Path directory = (Path) key.watchable();
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    // On overflow events were lost, so assume everything changed
+                    Path changed = event.kind() == StandardWatchEventKinds.OVERFLOW ? null : directory.resolve((Path) event.context());
+                    boolean config = changed == null || changed.equals(configFile);
+                    boolean dungeons = changed == null || directory.equals(dungeonDirectory) && changed.toString().endsWith(".zip");
+
+                    // Other files such as logs and location stores change all the time and must not delay a reload
+                    if (config || dungeons) {
+                        configChanged |= config;
+                        dungeonsChanged |= dungeons;
+                        deadline = System.currentTimeMillis() + debounceMillis;
+                    }
+                }
+
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private void notify(Runnable listener) {
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            getLogger().log(Level.SEVERE, "Error handling data directory change", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
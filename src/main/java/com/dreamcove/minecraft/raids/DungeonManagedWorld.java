@@ -2,16 +2,36 @@ package com.dreamcove.minecraft.raids;
 
 import com.dreamcove.minecraft.raids.api.World;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+
 public class DungeonManagedWorld extends ManagedWorld {
     private final String dungeon;
+    private final UUID editorId;
 
-    public DungeonManagedWorld(World world, String dungeon) {
+    public DungeonManagedWorld(World world, String dungeon, UUID editorId) {
         super(world);
 
         this.dungeon = dungeon;
+        this.editorId = editorId;
     }
 
     public String getDungeon() {
         return dungeon;
     }
+
+    @Override
+    public String getDungeonName() {
+        return dungeon;
+    }
+
+    public UUID getEditorId() {
+        return editorId;
+    }
+
+    @Override
+    public Collection<UUID> getMemberIds() {
+        return Collections.singleton(editorId);
+    }
 }
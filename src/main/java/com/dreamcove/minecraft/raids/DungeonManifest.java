@@ -0,0 +1,94 @@
+package com.dreamcove.minecraft.raids;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * DungeonManifest records the size, modification time and content hash of every file that
+ * went into a dungeon archive, so the next package can tell which files actually changed.
+ */
+public class DungeonManifest {
+    private static final String SEPARATOR = "\t";
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public static File getManifestFile(File dungeonFile) {
+        String name = dungeonFile.getName();
+        return new File(dungeonFile.getParentFile(), name.substring(0, name.lastIndexOf('.')) + ".manifest");
+    }
+
+    public static DungeonManifest load(File manifestFile) {
+        DungeonManifest result = new DungeonManifest();
+
+        if (manifestFile.exists()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifestFile), StandardCharsets.UTF_8))) {
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(SEPARATOR, 4);
+
+                    if (parts.length == 4) {
+                        result.put(parts[3], Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[0]);
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // A broken manifest only costs a full repackage
+                Logger.getLogger(DungeonManifest.class.getName()).log(Level.WARNING, "Ignoring unreadable manifest " + manifestFile.getName(), e);
+                result.entries.clear();
+            }
+        }
+
+        return result;
+    }
+
+    public void save(File manifestFile) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(manifestFile), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writer.write(entry.getValue().getHash() + SEPARATOR
+                        + entry.getValue().getSize() + SEPARATOR
+                        + entry.getValue().getModified() + SEPARATOR
+                        + entry.getKey() + "\n");
+            }
+        }
+    }
+
+    public Entry get(String path) {
+        return entries.get(path);
+    }
+
+    public void put(String path, long size, long modified, String hash) {
+        entries.put(path, new Entry(size, modified, hash));
+    }
+
+    public Map<String, Entry> getEntries() {
+        return entries;
+    }
+
+    public static class Entry {
+        private final long size;
+        private final long modified;
+        private final String hash;
+
+        public Entry(long size, long modified, String hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getModified() {
+            return modified;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+    }
+}
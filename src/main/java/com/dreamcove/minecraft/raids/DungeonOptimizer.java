@@ -0,0 +1,188 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.config.Bounds;
+import com.dreamcove.minecraft.raids.utils.FileUtilities;
+import com.dreamcove.minecraft.raids.utils.ZipUtilities;
+
+import java.io.*;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * DungeonOptimizer removes world data a raid never needs from a dungeon archive: excluded
+ * folders/files and region files without a single chunk inside the dungeon's bounds.
+ */
+public class DungeonOptimizer {
+    private static final Pattern REGION_PATTERN = Pattern.compile("(?:^|/)r\\.(-?\\d+)\\.(-?\\d+)\\.mca$");
+    private static final int REGION_HEADER_SIZE = 4096;
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final List<String> excludes;
+    private final Bounds bounds;
+    private final int parallelism;
+
+    public DungeonOptimizer(List<String> excludes, Bounds bounds, int parallelism) {
+        this.excludes = new ArrayList<>(excludes);
+        this.bounds = bounds;
+        this.parallelism = parallelism;
+    }
+
+    public boolean isExcluded(String entryName) {
+        String name = entryName.endsWith("/") ? entryName.substring(0, entryName.length() - 1) : entryName;
+
+        return excludes.stream().anyMatch(e -> name.equals(e) || name.startsWith(e + "/"));
+    }
+
+    public static boolean isRegionFile(String entryName) {
+        return REGION_PATTERN.matcher(entryName).find();
+    }
+
+    /**
+     * Checks the chunk location table of a region file for any chunk inside the bounds.
+     * Anything that is not a region file, or any region when no bounds are set, is kept.
+     */
+    public boolean hasChunksInBounds(String entryName, InputStream regionStream) throws IOException {
+        Matcher matcher = REGION_PATTERN.matcher(entryName);
+
+        if (bounds == null || !matcher.find()) {
+            return true;
+        }
+
+        int regionX = Integer.parseInt(matcher.group(1));
+        int regionZ = Integer.parseInt(matcher.group(2));
+        byte[] header = new byte[REGION_HEADER_SIZE];
+
+        try (DataInputStream dis = new DataInputStream(regionStream)) {
+            dis.readFully(header);
+        } catch (EOFException e) {
+            // Empty or truncated region files have no chunks
+            return false;
+        }
+
+        for (int i = 0; i < REGION_HEADER_SIZE / 4; i++) {
+            int location = ((header[i * 4] & 0xff) << 24) | ((header[i * 4 + 1] & 0xff) << 16)
+                    | ((header[i * 4 + 2] & 0xff) << 8) | (header[i * 4 + 3] & 0xff);
+
+            if (location != 0) {
+                int chunkX = regionX * 32 + (i & 31);
+                int chunkZ = regionZ * 32 + (i >> 5);
+
+                if (bounds.intersects(chunkX * 16, chunkZ * 16, chunkX * 16 + 15, chunkZ * 16 + 15)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Rewrites the dungeon archive without unneeded entries and measures the difference.
+     */
+    public Result optimize(File dungeonFile) throws IOException {
+        File optimizedFile = new File(dungeonFile.getParentFile(), dungeonFile.getName() + ".optimized");
+        int removed = 0;
+
+        try (ZipFile zip = new ZipFile(dungeonFile);
+             ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(optimizedFile), BUFFER_SIZE))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                if (isExcluded(entry.getName())
+                        || isRegionFile(entry.getName()) && !hasChunksInBounds(entry.getName(), zip.getInputStream(entry))) {
+                    removed++;
+                    continue;
+                }
+
+                ZipEntry copy = new ZipEntry(entry.getName());
+                if (entry.getMethod() == ZipEntry.STORED) {
+                    copy.setMethod(ZipEntry.STORED);
+                    copy.setSize(entry.getSize());
+                    copy.setCompressedSize(entry.getSize());
+                    copy.setCrc(entry.getCrc());
+                }
+
+                zos.putNextEntry(copy);
+                try (InputStream is = zip.getInputStream(entry)) {
+                    int read;
+
+                    while ((read = is.read(buffer)) > 0) {
+                        zos.write(buffer, 0, read);
+                    }
+                }
+                zos.closeEntry();
+            }
+        } catch (IOException e) {
+            FileUtilities.deleteFile(optimizedFile);
+            throw e;
+        }
+
+        Result result = new Result(removed, dungeonFile.length(), optimizedFile.length(),
+                timeExtraction(dungeonFile), timeExtraction(optimizedFile));
+
+        FileUtilities.replace(optimizedFile, dungeonFile);
+
+        return result;
+    }
+
+    private long timeExtraction(File zipFile) throws IOException {
+        File target = new File(zipFile.getParentFile(), "." + zipFile.getName() + ".timing");
+        long start = System.currentTimeMillis();
+
+        try {
+            ZipUtilities.extract(zipFile, target, DungeonTemplateCache::isWorldEntry, parallelism);
+            return System.currentTimeMillis() - start;
+        } finally {
+            FileUtilities.deleteFile(target);
+        }
+    }
+
+    public static class Result {
+        private final int removedEntries;
+        private final long sizeBefore;
+        private final long sizeAfter;
+        private final long extractBefore;
+        private final long extractAfter;
+
+        public Result(int removedEntries, long sizeBefore, long sizeAfter, long extractBefore, long extractAfter) {
+            this.removedEntries = removedEntries;
+            this.sizeBefore = sizeBefore;
+            this.sizeAfter = sizeAfter;
+            this.extractBefore = extractBefore;
+            this.extractAfter = extractAfter;
+        }
+
+        public int getRemovedEntries() {
+            return removedEntries;
+        }
+
+        public long getSizeBefore() {
+            return sizeBefore;
+        }
+
+        public long getSizeAfter() {
+            return sizeAfter;
+        }
+
+        public long getExtractBefore() {
+            return extractBefore;
+        }
+
+        public long getExtractAfter() {
+            return extractAfter;
+        }
+
+        @Override
+        public String toString() {
+            return MessageFormat.format("removed {0} entries, size {1} KB -> {2} KB, extraction {3} ms -> {4} ms",
+                    removedEntries, sizeBefore / 1024, sizeAfter / 1024, extractBefore, extractAfter);
+        }
+    }
+}
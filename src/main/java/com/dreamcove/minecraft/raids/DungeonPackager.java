@@ -0,0 +1,309 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.config.PackageFormat;
+import com.dreamcove.minecraft.raids.utils.FileUtilities;
+import com.dreamcove.minecraft.raids.utils.RawZipReader;
+import com.dreamcove.minecraft.raids.utils.RawZipWriter;
+import com.dreamcove.minecraft.raids.utils.ZipRecord;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * DungeonPackager writes a world folder out as a dungeon archive.
+ * <p>
+ * A {@link DungeonManifest} is kept next to the archive. When a dungeon is packaged again,
+ * files whose size and modification time (or, failing that, content hash) match the manifest
+ * are copied from the previous archive as-is instead of being read and compressed again.
+ * Changed files are compressed concurrently and written in a stable order to a temporary
+ * file, which only replaces the dungeon once it is complete.
+ */
+public class DungeonPackager {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final List<String> COMPRESSED_EXTENSIONS = Arrays.asList(".mca", ".mcc", ".dat", ".dat_old");
+
+    private final PackageFormat format;
+    private final int parallelism;
+    private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    public DungeonPackager(PackageFormat format, int parallelism) {
+        this.format = format;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public static boolean isCompressed(String entryName) {
+        return COMPRESSED_EXTENSIONS.stream().anyMatch(entryName::endsWith);
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(DungeonPackager.class.getName());
+    }
+
+    public Result packageWorld(File worldFolder, File dungeonFile) throws IOException {
+        long start = System.currentTimeMillis();
+        File manifestFile = DungeonManifest.getManifestFile(dungeonFile);
+        File tempFile = new File(dungeonFile.getParentFile(), dungeonFile.getName() + ".tmp");
+        File tempManifest = new File(manifestFile.getParentFile(), manifestFile.getName() + ".tmp");
+
+        DungeonManifest previous = dungeonFile.exists() ? DungeonManifest.load(manifestFile) : new DungeonManifest();
+        DungeonManifest manifest = new DungeonManifest();
+        Result result = new Result();
+
+        List<Map.Entry<String, File>> files = new ArrayList<>(listFiles(worldFolder).entrySet());
+        Deque<Future<PackagedEntry>> window = new ArrayDeque<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try (RawZipReader reader = openPrevious(dungeonFile, previous);
+             RawZipWriter writer = new RawZipWriter(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int next = 0;
+
+            // Entries are prepared ahead on the pool but always written in listing order,
+            // the window bounds how many compressed entries are held in memory
+            while (next < files.size() || !window.isEmpty()) {
+                while (next < files.size() && window.size() < parallelism * 2) {
+                    Map.Entry<String, File> file = files.get(next++);
+                    window.add(pool.submit(() -> prepare(reader, previous, file.getKey(), file.getValue())));
+                }
+
+                PackagedEntry entry = await(window.poll());
+
+                if (entry.data != null) {
+                    writer.write(entry.record, entry.data);
+                } else {
+                    try (InputStream raw = reader.openRaw(entry.record.getName())) {
+                        writer.write(entry.record, raw, buffer);
+                    }
+                }
+
+                if (!entry.record.isDirectory()) {
+                    manifest.put(entry.record.getName(), entry.size, entry.modified, entry.hash);
+                    result.inputSize += entry.size;
+
+                    if (entry.data != null) {
+                        result.compressed++;
+                    } else {
+                        result.reused++;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            window.forEach(f -> f.cancel(true));
+            tempFile.delete();
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        manifest.save(tempManifest);
+        FileUtilities.replace(tempFile, dungeonFile);
+        FileUtilities.replace(tempManifest, manifestFile);
+        result.size = dungeonFile.length();
+        result.millis = System.currentTimeMillis() - start;
+
+        getLogger().info(MessageFormat.format("Packaged {0} with {1} threads: {2}", dungeonFile.getName(), parallelism, result));
+
+        return result;
+    }
+
+    private static PackagedEntry await(Future<PackagedEntry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Packaging interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error packaging dungeon", e.getCause());
+        }
+    }
+
+    private PackagedEntry prepare(RawZipReader reader, DungeonManifest previous, String entryName, File file) throws IOException {
+        PackagedEntry result = new PackagedEntry();
+        result.size = file.length();
+        result.modified = file.lastModified();
+
+        if (file.isDirectory()) {
+            result.record = ZipRecord.directory(entryName, result.modified);
+            result.data = new byte[0];
+        } else {
+            result.hash = reader != null ? findReusable(reader, previous, entryName, file) : null;
+
+            if (result.hash != null) {
+                result.record = reader.getRecord(entryName);
+            } else {
+                compress(result, entryName, file);
+            }
+        }
+
+        return result;
+    }
+
+    private RawZipReader openPrevious(File dungeonFile, DungeonManifest previous) {
+        if (previous.getEntries().isEmpty()) {
+            return null;
+        }
+
+        try {
+            return new RawZipReader(dungeonFile);
+        } catch (IOException e) {
+            // Packages that cannot be read raw (e.g. zip64) are simply rebuilt
+            getLogger().log(Level.WARNING, "Rebuilding " + dungeonFile.getName() + " from scratch", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the content hash of the file if its entry in the previous archive can be reused.
+     */
+    private String findReusable(RawZipReader reader, DungeonManifest previous, String entryName, File file) throws IOException {
+        DungeonManifest.Entry known = previous.get(entryName);
+        ZipRecord record = reader.getRecord(entryName);
+
+        if (known == null || record == null || record.getMethod() != getMethod(entryName) || known.getSize() != file.length()) {
+            return null;
+        }
+
+        if (known.getModified() == file.lastModified()) {
+            return known.getHash();
+        }
+
+        // Instantiated worlds are copies, so an unchanged file usually has a new timestamp
+        String hash = FileUtilities.hash(file);
+        return hash.equals(known.getHash()) ? hash : null;
+    }
+
+    private int getMethod(String entryName) {
+        return format == PackageFormat.MIXED && isCompressed(entryName) ? ZipEntry.STORED : ZipEntry.DEFLATED;
+    }
+
+    private void compress(PackagedEntry entry, String entryName, File file) throws IOException {
+        byte[] buffer = buffers.get();
+        int method = getMethod(entryName);
+        MessageDigest digest = FileUtilities.newDigest();
+        CRC32 crc = new CRC32();
+        ByteArrayOutputStream data = new ByteArrayOutputStream((int) Math.min(file.length() + 64, Integer.MAX_VALUE));
+        Deflater deflater = method == ZipEntry.DEFLATED ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+        byte[] output = deflater != null ? new byte[BUFFER_SIZE] : null;
+        long size = 0;
+
+        try (FileInputStream fis = new FileInputStream(file)) {
+            int read;
+
+            while ((read = fis.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+                crc.update(buffer, 0, read);
+                size += read;
+
+                if (deflater != null) {
+                    deflater.setInput(buffer, 0, read);
+                    while (!deflater.needsInput()) {
+                        data.write(output, 0, deflater.deflate(output));
+                    }
+                } else {
+                    data.write(buffer, 0, read);
+                }
+            }
+
+            if (deflater != null) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    data.write(output, 0, deflater.deflate(output));
+                }
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+
+        entry.data = data.toByteArray();
+        entry.size = size;
+        entry.record = new ZipRecord(entryName, method, crc.getValue(), entry.data.length, size, ZipRecord.toDosTime(entry.modified));
+        entry.hash = FileUtilities.toHex(digest.digest());
+    }
+
+    /**
+     * Lists the world folder in a stable order so identical worlds produce identical archives.
+     */
+    private static SortedMap<String, File> listFiles(File worldFolder) {
+        SortedMap<String, File> result = new TreeMap<>();
+        listFiles(worldFolder, "", result);
+        return result;
+    }
+
+    private static void listFiles(File folder, String prefix, SortedMap<String, File> result) {
+        for (File f : Objects.requireNonNull(folder.listFiles())) {
+            if (f.isDirectory()) {
+                result.put(prefix + f.getName() + "/", f);
+                listFiles(f, prefix + f.getName() + "/", result);
+            } else {
+                result.put(prefix + f.getName(), f);
+            }
+        }
+    }
+
+    /**
+     * One archive entry, either compressed into memory or to be copied from the previous archive.
+     */
+    private static class PackagedEntry {
+        private ZipRecord record;
+        private byte[] data;
+        private String hash;
+        private long size;
+        private long modified;
+    }
+
+    public static class Result {
+        private int reused;
+        private int compressed;
+        private long inputSize;
+        private long size;
+        private long millis;
+
+        public int getReused() {
+            return reused;
+        }
+
+        public int getCompressed() {
+            return compressed;
+        }
+
+        public long getInputSize() {
+            return inputSize;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * World data packaged per second, in megabytes.
+         */
+        public double getThroughput() {
+            return inputSize / 1048576.0 / Math.max(1, millis) * 1000;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files reused, %d compressed, %d KB archive in %d ms (%.1f MB/s)",
+                    reused, compressed, size / 1024, millis, getThroughput());
+        }
+    }
+}
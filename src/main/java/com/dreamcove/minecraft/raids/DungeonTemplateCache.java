@@ -0,0 +1,273 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.utils.FileUtilities;
+import com.dreamcove.minecraft.raids.utils.ZipUtilities;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * DungeonTemplateCache keeps an extracted copy of every dungeon archive so that raid
+ * worlds can be instantiated by copying files rather than inflating the archive again.
+ * <p>
+ * Templates are only ever written while (re)extracting, which happens when the size,
+ * modification time and hash of the archive no longer match what was extracted. Copies and
+ * resets hold the dungeon's read lock for as long as they read the template, and re-extraction
+ * takes its write lock, so a template is never replaced underneath either.
+ */
+public class DungeonTemplateCache {
+    private static final String STAMP_SUFFIX = ".stamp";
+    private static final String STAGING_SUFFIX = ".staging";
+
+    private final File templateDirectory;
+    private final Map<Path, String> templateHashes = new ConcurrentHashMap<>();
+    private final Map<String, ReadWriteLock> locks = new ConcurrentHashMap<>();
+    private volatile int parallelism = 1;
+
+    public DungeonTemplateCache(File templateDirectory) {
+        this.templateDirectory = templateDirectory;
+    }
+
+    public static boolean isWorldEntry(String name) {
+        return !name.endsWith("uid.dat") && !name.endsWith("session.lock");
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void instantiate(String dungeonName, File dungeonFile, File worldDir) throws IOException {
+        long start = System.currentTimeMillis();
+
+        Lock lock = lockTemplate(dungeonName, dungeonFile);
+        try {
+            FileUtilities.copyDirectory(new File(templateDirectory, dungeonName), worldDir);
+        } finally {
+            lock.unlock();
+        }
+
+        getLogger().info(MessageFormat.format("{0}: Copied from template {1} in {2} ms",
+                worldDir.getName(), dungeonName, System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Brings a previously instantiated world folder back to the template, rewriting only the
+     * files whose size or content differ and removing files the template does not have.
+     */
+    public void reset(String dungeonName, File dungeonFile, File worldDir) throws IOException {
+        long start = System.currentTimeMillis();
+        Lock lock = lockTemplate(dungeonName, dungeonFile);
+        int[] counts = {0, 0};
+
+        try {
+            resetFrom(new File(templateDirectory, dungeonName).toPath(), worldDir.toPath(), counts);
+        } finally {
+            lock.unlock();
+        }
+
+        getLogger().info(MessageFormat.format("{0}: Reset to template {1} in {2} ms, {3} restored, {4} removed",
+                worldDir.getName(), dungeonName, System.currentTimeMillis() - start, counts[0], counts[1]));
+    }
+
+    private void resetFrom(Path templatePath, Path worldPath, int[] counts) throws IOException {
+        Files.walkFileTree(templatePath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(worldPath.resolve(templatePath.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path target = worldPath.resolve(templatePath.relativize(file));
+
+                if (isChanged(file, attrs, target)) {
+                    Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                    counts[0]++;
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Files.walkFileTree(worldPath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!Files.exists(templatePath.resolve(worldPath.relativize(dir)))) {
+                    FileUtilities.deleteFile(dir.toFile());
+                    counts[1]++;
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!Files.exists(templatePath.resolve(worldPath.relativize(file)))) {
+                    Files.delete(file);
+                    counts[1]++;
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private boolean isChanged(Path templateFile, BasicFileAttributes templateAttrs, Path target) throws IOException {
+        if (!Files.isRegularFile(target) || Files.size(target) != templateAttrs.size()) {
+            return true;
+        }
+
+        // Instances keep the template's timestamps, so an unchanged time means untouched
+        if (Files.getLastModifiedTime(target).equals(templateAttrs.lastModifiedTime())) {
+            return false;
+        }
+
+        return !getHash(templateFile).equals(FileUtilities.hash(target.toFile()));
+    }
+
+    private String getHash(Path templateFile) throws IOException {
+        String hash = templateHashes.get(templateFile);
+
+        if (hash == null) {
+            hash = FileUtilities.hash(templateFile.toFile());
+            templateHashes.put(templateFile, hash);
+        }
+
+        return hash;
+    }
+
+    /**
+     * Brings the template up to date and returns its directory. Only use it to look at the
+     * template, it may be replaced as soon as this returns.
+     */
+    public File getTemplate(String dungeonName, File dungeonFile) throws IOException {
+        lockTemplate(dungeonName, dungeonFile).unlock();
+
+        return new File(templateDirectory, dungeonName);
+    }
+
+    /**
+     * Brings the template up to date and returns its read lock, already held by the caller.
+     */
+    private Lock lockTemplate(String dungeonName, File dungeonFile) throws IOException {
+        ReadWriteLock lock = locks.computeIfAbsent(dungeonName, k -> new ReentrantReadWriteLock());
+
+        lock.readLock().lock();
+        if (isCurrent(dungeonName, dungeonFile)) {
+            return lock.readLock();
+        }
+        lock.readLock().unlock();
+
+        lock.writeLock().lock();
+        try {
+            refreshTemplate(dungeonName, dungeonFile);
+
+            // Downgrade, so nothing can re-extract between the refresh and the caller's read
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        return lock.readLock();
+    }
+
+    private boolean isCurrent(String dungeonName, File dungeonFile) {
+        File template = new File(templateDirectory, dungeonName);
+        File stampFile = new File(templateDirectory, dungeonName + STAMP_SUFFIX);
+
+        if (!template.isDirectory() || !stampFile.exists()) {
+            return false;
+        }
+
+        YamlConfiguration stamp = loadStamp(stampFile);
+
+        return stamp != null && stamp.getLong("size") == dungeonFile.length() && stamp.getLong("modified") == dungeonFile.lastModified();
+    }
+
+    private void refreshTemplate(String dungeonName, File dungeonFile) throws IOException {
+        File template = new File(templateDirectory, dungeonName);
+        File stampFile = new File(templateDirectory, dungeonName + STAMP_SUFFIX);
+
+        if (template.isDirectory() && stampFile.exists()) {
+            YamlConfiguration stamp = loadStamp(stampFile);
+
+            if (stamp != null) {
+                if (stamp.getLong("size") == dungeonFile.length() && stamp.getLong("modified") == dungeonFile.lastModified()) {
+                    return;
+                }
+
+                // Touched but possibly not changed, so let the content decide
+                String hash = FileUtilities.hash(dungeonFile);
+                if (hash.equals(stamp.getString("hash"))) {
+                    saveStamp(stampFile, dungeonFile, hash);
+                    return;
+                }
+            }
+        }
+
+        extractTemplate(dungeonName, dungeonFile, template, stampFile);
+    }
+
+    private void extractTemplate(String dungeonName, File dungeonFile, File template, File stampFile) throws IOException {
+        long start = System.currentTimeMillis();
+        File staging = new File(templateDirectory, dungeonName + STAGING_SUFFIX);
+
+        FileUtilities.deleteFile(staging);
+        staging.mkdirs();
+
+        ZipUtilities.extract(dungeonFile, staging, DungeonTemplateCache::isWorldEntry, parallelism);
+
+        FileUtilities.deleteFile(stampFile);
+        FileUtilities.deleteFile(template);
+        templateHashes.keySet().removeIf(p -> p.startsWith(template.toPath()));
+
+        if (!staging.renameTo(template)) {
+            throw new IOException("Unable to move template into place for " + dungeonName);
+        }
+
+        saveStamp(stampFile, dungeonFile, FileUtilities.hash(dungeonFile));
+
+        getLogger().info(MessageFormat.format("Extracted template {0} from archive in {1} ms using {2} threads",
+                dungeonName, System.currentTimeMillis() - start, parallelism));
+    }
+
+    private YamlConfiguration loadStamp(File stampFile) {
+        YamlConfiguration stamp = new YamlConfiguration();
+
+        try {
+            stamp.load(stampFile);
+            return stamp;
+        } catch (IOException | InvalidConfigurationException e) {
+            getLogger().log(Level.WARNING, "Unable to read template stamp " + stampFile.getName(), e);
+            return null;
+        }
+    }
+
+    private void saveStamp(File stampFile, File dungeonFile, String hash) throws IOException {
+        YamlConfiguration stamp = new YamlConfiguration();
+
+        stamp.set("size", dungeonFile.length());
+        stamp.set("modified", dungeonFile.lastModified());
+        stamp.set("hash", hash);
+
+        stamp.save(stampFile);
+    }
+
+    private Logger getLogger() {
+        return Logger.getLogger(DungeonTemplateCache.class.getName());
+    }
+}
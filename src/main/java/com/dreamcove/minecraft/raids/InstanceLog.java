@@ -0,0 +1,179 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.utils.FileUtilities;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * InstanceLog is an append-only record of the raid instances that exist, so a restart after
+ * a crash knows which worlds were left behind. Every change is a single line; the file is
+ * rewritten with only the live instances when the plugin starts.
+ */
+public class InstanceLog {
+    private static final String SEPARATOR = "\t";
+    private static final String CREATED = "C";
+    private static final String STATE = "S";
+    private static final String REMOVED = "R";
+
+    private final File logFile;
+    private Writer writer;
+
+    public InstanceLog(File logFile) {
+        this.logFile = logFile;
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(InstanceLog.class.getName());
+    }
+
+    public void recordCreated(RaidManagedWorld world) {
+        StringJoiner members = new StringJoiner(",");
+        world.getMemberIds().forEach(id -> members.add(id.toString()));
+
+        append(CREATED, world.getName(), world.getRaid().getName(), world.getParty().getId().toString(),
+                world.getState().name(), String.valueOf(world.getCreatedAt()), members.toString());
+    }
+
+    public void recordState(String worldName, RaidState state) {
+        append(STATE, worldName, state.name());
+    }
+
+    public void recordRemoved(String worldName) {
+        append(REMOVED, worldName);
+    }
+
+    private synchronized void append(String... fields) {
+        try {
+            if (writer == null) {
+                logFile.getParentFile().mkdirs();
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile, true), StandardCharsets.UTF_8));
+            }
+
+            writer.write(String.join(SEPARATOR, fields) + "\n");
+            writer.flush();
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Unable to write " + logFile.getName(), e);
+        }
+    }
+
+    /**
+     * Replays the log and returns the instances that were never removed, by world name.
+     */
+    public synchronized Map<String, Entry> load() {
+        Map<String, Entry> result = new LinkedHashMap<>();
+
+        if (!logFile.exists()) {
+            return result;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(SEPARATOR);
+
+                try {
+                    if (parts[0].equals(CREATED) && parts.length >= 6) {
+                        List<UUID> members = new ArrayList<>();
+                        if (parts.length > 6 && !parts[6].isEmpty()) {
+                            Arrays.stream(parts[6].split(",")).map(UUID::fromString).forEach(members::add);
+                        }
+
+                        result.put(parts[1], new Entry(parts[1], parts[2], UUID.fromString(parts[3]),
+                                RaidState.valueOf(parts[4]), Long.parseLong(parts[5]), members));
+                    } else if (parts[0].equals(STATE) && parts.length == 3 && result.containsKey(parts[1])) {
+                        result.get(parts[1]).state = RaidState.valueOf(parts[2]);
+                    } else if (parts[0].equals(REMOVED) && parts.length == 2) {
+                        result.remove(parts[1]);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Most likely the last line was cut short by the crash
+                    getLogger().warning("Skipping unreadable instance record: " + line);
+                }
+            }
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Unable to read " + logFile.getName(), e);
+        }
+
+        return result;
+    }
+
+    /**
+     * Rewrites the log so it only holds the given instances.
+     */
+    public synchronized void compact(Collection<Entry> live) throws IOException {
+        close();
+
+        File tmpFile = new File(logFile.getParentFile(), logFile.getName() + ".tmp");
+        logFile.getParentFile().mkdirs();
+
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8))) {
+            for (Entry entry : live) {
+                StringJoiner members = new StringJoiner(",");
+                entry.getMemberIds().forEach(id -> members.add(id.toString()));
+
+                out.write(String.join(SEPARATOR, CREATED, entry.getWorldName(), entry.getRaidName(), entry.getPartyId().toString(),
+                        entry.getState().name(), String.valueOf(entry.getCreatedAt()), members.toString()) + "\n");
+            }
+        }
+
+        FileUtilities.replace(tmpFile, logFile);
+    }
+
+    public synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Unable to close " + logFile.getName(), e);
+            }
+            writer = null;
+        }
+    }
+
+    public static class Entry {
+        private final String worldName;
+        private final String raidName;
+        private final UUID partyId;
+        private final long createdAt;
+        private final List<UUID> memberIds;
+        private RaidState state;
+
+        public Entry(String worldName, String raidName, UUID partyId, RaidState state, long createdAt, List<UUID> memberIds) {
+            this.worldName = worldName;
+            this.raidName = raidName;
+            this.partyId = partyId;
+            this.state = state;
+            this.createdAt = createdAt;
+            this.memberIds = memberIds;
+        }
+
+        public String getWorldName() {
+            return worldName;
+        }
+
+        public String getRaidName() {
+            return raidName;
+        }
+
+        public UUID getPartyId() {
+            return partyId;
+        }
+
+        public RaidState getState() {
+            return state;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public List<UUID> getMemberIds() {
+            return memberIds;
+        }
+    }
+}
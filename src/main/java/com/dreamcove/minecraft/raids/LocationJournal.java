@@ -0,0 +1,180 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.api.WorldLocation;
+import com.dreamcove.minecraft.raids.utils.FileUtilities;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * LocationJournal stores return locations as a snapshot plus an append-only journal of put
+ * and remove records, so a flush costs a short sequential append no matter how many
+ * locations are kept. Locations are held in memory; the journal is folded into a new
+ * snapshot once it grows past the compaction threshold.
+ */
+public class LocationJournal implements LocationStore {
+    public static final long DEFAULT_COMPACT_THRESHOLD = 1024 * 1024;
+
+    private static final String SEPARATOR = "\t";
+    private static final String PUT = "P";
+    private static final String REMOVE = "R";
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final long compactThreshold;
+    private final Map<UUID, WorldLocation> locations = new LinkedHashMap<>();
+    private final List<String> pending = new ArrayList<>();
+
+    public LocationJournal(File snapshotFile, File journalFile) throws IOException {
+        this(snapshotFile, journalFile, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    /**
+     * Reads the snapshot and replays the journal over it.
+     */
+    public LocationJournal(File snapshotFile, File journalFile, long compactThreshold) throws IOException {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = journalFile;
+        this.compactThreshold = compactThreshold;
+
+        replay(snapshotFile);
+        replay(journalFile);
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(LocationJournal.class.getName());
+    }
+
+    private void replay(File file) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(SEPARATOR);
+
+                try {
+                    if (parts[0].equals(PUT) && parts.length == 3) {
+                        locations.put(UUID.fromString(parts[1]), WorldLocation.parse(parts[2]));
+                    } else if (parts[0].equals(REMOVE) && parts.length == 2) {
+                        locations.remove(UUID.fromString(parts[1]));
+                    } else {
+                        getLogger().warning("Skipping unreadable location record in " + file.getName() + ": " + line);
+                    }
+                } catch (ParseException | IllegalArgumentException e) {
+                    getLogger().warning("Skipping unreadable location record in " + file.getName() + ": " + line);
+                }
+            }
+        }
+    }
+
+    private static String putRecord(UUID player, WorldLocation location) {
+        return PUT + SEPARATOR + player + SEPARATOR + location;
+    }
+
+    private static String removeRecord(UUID player) {
+        return REMOVE + SEPARATOR + player;
+    }
+
+    @Override
+    public synchronized WorldLocation get(UUID player) {
+        return locations.get(player);
+    }
+
+    @Override
+    public synchronized void put(UUID player, WorldLocation location) {
+        locations.put(player, location);
+        pending.add(putRecord(player, location));
+    }
+
+    @Override
+    public synchronized WorldLocation remove(UUID player) {
+        WorldLocation result = locations.remove(player);
+
+        if (result != null) {
+            pending.add(removeRecord(player));
+        }
+
+        return result;
+    }
+
+    @Override
+    public synchronized int size() {
+        return locations.size();
+    }
+
+    @Override
+    public synchronized void forEach(BiConsumer<UUID, WorldLocation> action) {
+        locations.forEach(action);
+    }
+
+    /**
+     * Appends the queued records to the journal, and compacts it when it has grown too large.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        journalFile.getParentFile().mkdirs();
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true), StandardCharsets.UTF_8))) {
+            for (String record : pending) {
+                writer.write(record + "\n");
+            }
+        }
+
+        pending.clear();
+
+        if (journalFile.length() > compactThreshold) {
+            compact();
+        }
+    }
+
+    /**
+     * Writes all locations to a new snapshot and starts an empty journal. Should the server
+     * stop between the two steps, replaying the old journal over the new snapshot gives the
+     * same result.
+     */
+    private void compact() throws IOException {
+        File tmpFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+        snapshotFile.getParentFile().mkdirs();
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8))) {
+            for (Map.Entry<UUID, WorldLocation> entry : locations.entrySet()) {
+                writer.write(putRecord(entry.getKey(), entry.getValue()) + "\n");
+            }
+        }
+
+        FileUtilities.replace(tmpFile, snapshotFile);
+
+        if (journalFile.exists() && !journalFile.delete()) {
+            getLogger().log(Level.WARNING, "Unable to truncate " + journalFile.getName());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Renames the files once their locations have been migrated to another store.
+     */
+    public void retire() {
+        for (File file : Arrays.asList(snapshotFile, journalFile)) {
+            if (file.exists() && !file.renameTo(new File(file.getParentFile(), file.getName() + ".migrated"))) {
+                getLogger().warning("Unable to rename " + file.getName() + " after migration");
+            }
+        }
+    }
+}
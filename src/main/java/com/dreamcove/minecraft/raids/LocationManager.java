@@ -1,103 +1,223 @@
 package com.dreamcove.minecraft.raids;
 
 import com.dreamcove.minecraft.raids.api.WorldLocation;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.InvalidConfigurationException;
-import org.bukkit.configuration.file.YamlConfiguration;
 
 import java.io.File;
 import java.io.IOException;
-import java.text.ParseException;
-import java.util.*;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * LocationManager keeps the return location of players sent into raids in a
+ * {@link LocationStore}. Changes are flushed in the background shortly after they are made,
+ * so a whole party storing or removing locations costs a single write.
+ */
 public class LocationManager {
+    public static final long DEFAULT_FLUSH_DELAY = 2000;
 
-    private final File locationFile;
-    private final Map<UUID, WorldLocation> lastLocations = Collections.synchronizedMap(new HashMap<>());
+    private final LocationStore store;
+    private final long flushDelay;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final ScheduledExecutorService writer;
 
+    /**
+     * Uses a binary store next to the given YAML file of earlier versions, migrating it first.
+     */
     public LocationManager(File locationFile) {
-        this.locationFile = locationFile;
+        this(openBinaryStore(locationFile), DEFAULT_FLUSH_DELAY);
+    }
 
-        initialize();
+    public LocationManager(LocationStore store) {
+        this(store, DEFAULT_FLUSH_DELAY);
     }
 
-    private void initialize() {
-        if (locationFile.exists()) {
-            try {
-                loadLocations();
-            } catch (IOException | InvalidConfigurationException e) {
-                getLogger().log(Level.SEVERE, "Unable to load locations file", e);
-            }
-        }
+    public LocationManager(LocationStore store, long flushDelay) {
+        this.store = store;
+        this.flushDelay = flushDelay;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "PartyRaids-Locations");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(LocationManager.class.getName());
     }
 
-    private void loadLocations() throws IOException, InvalidConfigurationException {
-        YamlConfiguration configFile = new YamlConfiguration();
+    /**
+     * Opens the binary store kept next to the YAML file of earlier versions. When the store
+     * is new, locations kept as YAML or as snapshot and journal are copied into it and the old
+     * files are kept aside.
+     */
+    public static BinaryLocationStore openBinaryStore(File locationFile) {
+        String baseName = locationFile.getName().replaceFirst("\\.yml$", "");
+        File storeFile = new File(locationFile.getParentFile(), baseName + ".dat");
+        boolean existed = storeFile.exists();
+        BinaryLocationStore result;
 
-        configFile.load(locationFile);
+        try {
+            result = new BinaryLocationStore(storeFile);
+        } catch (IOException e) {
+            getLogger().log(Level.SEVERE, "Unable to load locations file, starting a new one", e);
 
-        ConfigurationSection section = configFile.getConfigurationSection("locations");
+            try {
+                if (!storeFile.renameTo(new File(storeFile.getParentFile(), storeFile.getName() + ".damaged"))) {
+                    throw new IOException("Unable to move " + storeFile.getName() + " aside");
+                }
+                result = new BinaryLocationStore(storeFile);
+            } catch (IOException exc) {
+                throw new IllegalStateException("Unable to create " + storeFile.getName(), exc);
+            }
+        }
 
-        if (section != null) {
-            Set<String> keys = section.getKeys(false);
+        if (!existed) {
+            File snapshotFile = new File(locationFile.getParentFile(), baseName + ".snapshot");
+            File journalFile = new File(locationFile.getParentFile(), baseName + ".journal");
 
-            for (String key : keys) {
-                String location = section.getString(key);
+            try {
+                if (snapshotFile.exists() || journalFile.exists()) {
+                    LocationJournal journal = new LocationJournal(snapshotFile, journalFile);
+                    int count = migrate(journal, result);
 
-                if (location != null) {
-                    try {
-                        WorldLocation worldLoc = WorldLocation.parse(location);
+                    journal.retire();
+                    getLogger().info("Migrated " + count + " return locations to " + storeFile.getName());
+                } else if (locationFile.exists()) {
+                    int count = migrate(new YamlLocationStore(locationFile), result);
 
-                        lastLocations.put(UUID.fromString(key), worldLoc);
-                    } catch (ParseException | RaidsException e) {
-                        getLogger().log(Level.WARNING, "Error loading player " + key, e);
+                    if (!locationFile.renameTo(new File(locationFile.getParentFile(), locationFile.getName() + ".migrated"))) {
+                        getLogger().warning("Unable to rename " + locationFile.getName() + " after migration");
                     }
+                    getLogger().info("Migrated " + count + " return locations to " + storeFile.getName());
                 }
+            } catch (IOException e) {
+                getLogger().log(Level.SEVERE, "Unable to migrate locations", e);
             }
         }
+
+        return result;
     }
 
-    private Logger getLogger() {
-        return Logger.getLogger(LocationManager.class.getName());
+    /**
+     * Copies every location from one store to another and returns how many were copied.
+     */
+    public static int migrate(LocationStore from, LocationStore to) throws IOException {
+        AtomicInteger count = new AtomicInteger();
+        IOException[] failure = new IOException[1];
+
+        from.forEach((player, location) -> {
+            if (failure[0] == null) {
+                try {
+                    to.put(player, location);
+                    count.incrementAndGet();
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        });
+
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+
+        to.flush();
+
+        return count.get();
+    }
+
+    public LocationStore getStore() {
+        return store;
     }
 
     public void store(UUID player, WorldLocation location) {
-        lastLocations.put(player, location);
+        try {
+            store.put(player, location);
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Error saving location of " + player, e);
+        }
+
+        markDirty();
+    }
+
+    private void markDirty() {
+        // Only the first change schedules a flush, later ones ride along with it
+        if (dirty.compareAndSet(false, true) && !writer.isShutdown()) {
+            writer.schedule(() -> {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    getLogger().log(Level.WARNING, "Error saving locations", e);
+                }
+            }, flushDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes pending changes to disk now.
+     */
+    public void flush() throws IOException {
+        if (dirty.getAndSet(false)) {
+            try {
+                store.flush();
+            } catch (IOException e) {
+                markDirty();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Stops the background writer and writes whatever is still pending.
+     */
+    public void close() {
+        writer.shutdownNow();
 
         try {
-            saveLocations();
+            store.close();
         } catch (IOException e) {
-            getLogger().log(Level.WARNING, "Error saving locations", e);
+            getLogger().log(Level.SEVERE, "Error saving locations", e);
         }
     }
 
-    private void saveLocations() throws IOException {
-        YamlConfiguration config = new YamlConfiguration();
-        synchronized (lastLocations) {
-            lastLocations.keySet().forEach(k -> {
-                config.set("locations." + k.toString(), lastLocations.get(k).toString());
-            });
+    public int size() {
+        try {
+            return store.size();
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Error counting locations", e);
+            return 0;
         }
-        config.save(locationFile);
     }
 
+    /**
+     * Returns the stored location; its world is only looked up when it is used.
+     */
     public WorldLocation get(UUID player) {
-        return lastLocations.get(player);
+        try {
+            return store.get(player);
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Error reading location of " + player, e);
+            return null;
+        }
     }
 
     public WorldLocation remove(UUID player) {
-        WorldLocation result = lastLocations.remove(player);
+        try {
+            WorldLocation result = store.remove(player);
 
-        if (result != null) {
-            try {
-                saveLocations();
-            } catch (IOException e) {
-                getLogger().log(Level.WARNING, "Error saving locations", e);
+            if (result != null) {
+                markDirty();
             }
-        }
 
-        return result;
+            return result;
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Error removing location of " + player, e);
+            return null;
+        }
     }
 }
@@ -0,0 +1,33 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.api.WorldLocation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Persistence behind {@link LocationManager}. Stores may keep changes in memory until
+ * {@link #flush()} is called.
+ */
+public interface LocationStore extends Closeable {
+
+    WorldLocation get(UUID player) throws IOException;
+
+    void put(UUID player, WorldLocation location) throws IOException;
+
+    /**
+     * Returns the location that was removed, or null when nothing was stored for the player.
+     */
+    WorldLocation remove(UUID player) throws IOException;
+
+    int size() throws IOException;
+
+    void forEach(BiConsumer<UUID, WorldLocation> action) throws IOException;
+
+    /**
+     * Writes pending changes to disk.
+     */
+    void flush() throws IOException;
+}
@@ -1,15 +1,28 @@
 package com.dreamcove.minecraft.raids;
 
 import com.dreamcove.minecraft.raids.api.World;
+import com.dreamcove.minecraft.raids.utils.TimingWheel;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class ManagedWorld {
+    public static final long DEFAULT_EXPIRY_GRACE = 10000;
 
     private final long createdAt;
     private final World world;
+    private final Set<UUID> occupants = ConcurrentHashMap.newKeySet();
+    private final Map<String, TimingWheel.Timeout> timers = new ConcurrentHashMap<>();
+    private volatile long emptySince;
+    private volatile long expiryGrace = DEFAULT_EXPIRY_GRACE;
 
     public ManagedWorld(World world) {
         this.world = world;
         this.createdAt = System.currentTimeMillis();
+        this.emptySince = createdAt;
     }
 
     public String getName() {
@@ -20,12 +33,70 @@ public abstract class ManagedWorld {
         return world;
     }
 
+    public abstract String getDungeonName();
+
+    /**
+     * The players this world was created for.
+     */
+    public abstract Collection<UUID> getMemberIds();
+
     public final boolean isActive() {
         return !isExpired();
     }
 
     public boolean isExpired() {
-        return System.currentTimeMillis() - createdAt > 10000 && world.getPlayers().isEmpty();
+        return occupants.isEmpty() && System.currentTimeMillis() - emptySince >= expiryGrace;
+    }
+
+    public synchronized void addOccupant(UUID playerId) {
+        occupants.add(playerId);
+    }
+
+    /**
+     * Returns true when the last occupant has left and the world starts its expiry grace.
+     */
+    public synchronized boolean removeOccupant(UUID playerId) {
+        if (occupants.remove(playerId) && occupants.isEmpty()) {
+            emptySince = System.currentTimeMillis();
+            return true;
+        }
+
+        return false;
+    }
+
+    public int getOccupantCount() {
+        return occupants.size();
+    }
+
+    /**
+     * Keeps track of a pending timer for this world, cancelling any previous one of the same name.
+     */
+    public void setTimer(String name, TimingWheel.Timeout timeout) {
+        TimingWheel.Timeout previous = timers.put(name, timeout);
+
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    public void cancelTimer(String name) {
+        TimingWheel.Timeout timeout = timers.remove(name);
+
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    public void cancelTimers() {
+        timers.keySet().forEach(this::cancelTimer);
+    }
+
+    public long getExpiryGrace() {
+        return expiryGrace;
+    }
+
+    public void setExpiryGrace(long expiryGrace) {
+        this.expiryGrace = expiryGrace;
     }
 
     public long getCreatedAt() {
@@ -0,0 +1,116 @@
+package com.dreamcove.minecraft.raids;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * ManagedWorldRegistry indexes managed worlds by world name, party, player and dungeon.
+ * <p>
+ * Writers serialize on the registry so every index changes together; readers go straight
+ * to the concurrent maps without locking.
+ */
+public class ManagedWorldRegistry {
+    private final Map<String, ManagedWorld> byName = new ConcurrentHashMap<>();
+    private final Map<UUID, RaidManagedWorld> byParty = new ConcurrentHashMap<>();
+    private final Map<UUID, ManagedWorld> byPlayer = new ConcurrentHashMap<>();
+    private final Map<String, Set<ManagedWorld>> byDungeon = new ConcurrentHashMap<>();
+    private volatile int raidCount;
+
+    public synchronized void add(ManagedWorld world) {
+        ManagedWorld previous = byName.put(world.getName(), world);
+        if (previous != null) {
+            unindex(previous);
+        }
+
+        if (world instanceof RaidManagedWorld) {
+            byParty.put(((RaidManagedWorld) world).getParty().getId(), (RaidManagedWorld) world);
+            raidCount++;
+        }
+        world.getMemberIds().forEach(id -> byPlayer.put(id, world));
+        byDungeon.computeIfAbsent(world.getDungeonName(), k -> ConcurrentHashMap.newKeySet()).add(world);
+    }
+
+    public synchronized boolean remove(ManagedWorld world) {
+        if (!byName.remove(world.getName(), world)) {
+            return false;
+        }
+
+        unindex(world);
+        return true;
+    }
+
+    private void unindex(ManagedWorld world) {
+        // Only drop index entries that still point at this world, a newer one may own them
+        if (world instanceof RaidManagedWorld) {
+            byParty.remove(((RaidManagedWorld) world).getParty().getId(), world);
+            raidCount--;
+        }
+        world.getMemberIds().forEach(id -> byPlayer.remove(id, world));
+
+        Set<ManagedWorld> dungeonWorlds = byDungeon.get(world.getDungeonName());
+        if (dungeonWorlds != null) {
+            dungeonWorlds.remove(world);
+            if (dungeonWorlds.isEmpty()) {
+                byDungeon.remove(world.getDungeonName(), dungeonWorlds);
+            }
+        }
+    }
+
+    /**
+     * Removes and returns every expired world.
+     */
+    public synchronized List<ManagedWorld> removeExpired() {
+        List<ManagedWorld> result = byName.values().stream()
+                .filter(ManagedWorld::isExpired)
+                .collect(Collectors.toList());
+
+        result.forEach(this::remove);
+
+        return result;
+    }
+
+    public synchronized void clear() {
+        byName.clear();
+        byParty.clear();
+        byPlayer.clear();
+        byDungeon.clear();
+        raidCount = 0;
+    }
+
+    public ManagedWorld getByName(String worldName) {
+        return byName.get(worldName);
+    }
+
+    public boolean contains(String worldName) {
+        return byName.containsKey(worldName);
+    }
+
+    public RaidManagedWorld getByParty(UUID partyId) {
+        return byParty.get(partyId);
+    }
+
+    public ManagedWorld getByPlayer(UUID playerId) {
+        return byPlayer.get(playerId);
+    }
+
+    public Collection<ManagedWorld> getByDungeon(String dungeonName) {
+        Set<ManagedWorld> result = byDungeon.get(dungeonName);
+        return result == null ? Collections.emptySet() : Collections.unmodifiableSet(result);
+    }
+
+    public Collection<ManagedWorld> getAll() {
+        return Collections.unmodifiableCollection(byName.values());
+    }
+
+    public int size() {
+        return byName.size();
+    }
+
+    /**
+     * Returns the number of raid worlds, kept as worlds come and go rather than counted.
+     */
+    public int getRaidCount() {
+        return raidCount;
+    }
+}
@@ -0,0 +1,107 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.api.MessageReceiver;
+import com.dreamcove.minecraft.raids.config.Raid;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * RaidAdmissionQueue holds raid start requests, first come first served, while the server is
+ * at its instance limits.
+ */
+public class RaidAdmissionQueue {
+    private final LinkedHashMap<UUID, Ticket> queue = new LinkedHashMap<>();
+
+    /**
+     * Queues the party and returns its position in line, starting at 1.
+     */
+    public synchronized int offer(Ticket ticket) {
+        queue.putIfAbsent(ticket.getPartyId(), ticket);
+
+        return getPosition(ticket.getPartyId());
+    }
+
+    public synchronized Ticket poll() {
+        Iterator<Ticket> it = queue.values().iterator();
+
+        if (!it.hasNext()) {
+            return null;
+        }
+
+        Ticket result = it.next();
+        it.remove();
+
+        return result;
+    }
+
+    public synchronized Ticket remove(UUID partyId) {
+        return queue.remove(partyId);
+    }
+
+    public synchronized boolean contains(UUID partyId) {
+        return queue.containsKey(partyId);
+    }
+
+    /**
+     * Returns the position of the party in line, or 0 if it is not waiting.
+     */
+    public synchronized int getPosition(UUID partyId) {
+        int position = 1;
+
+        for (UUID id : queue.keySet()) {
+            if (id.equals(partyId)) {
+                return position;
+            }
+            position++;
+        }
+
+        return 0;
+    }
+
+    public synchronized List<Ticket> getWaiting() {
+        return new ArrayList<>(queue.values());
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    public static class Ticket {
+        private final UUID partyId;
+        private final Raid raid;
+        private final MessageReceiver receiver;
+        private final long requestedAt;
+        private final CompletableFuture<RaidManagedWorld> future = new CompletableFuture<>();
+
+        public Ticket(UUID partyId, Raid raid, MessageReceiver receiver) {
+            this.partyId = partyId;
+            this.raid = raid;
+            this.receiver = receiver;
+            this.requestedAt = System.currentTimeMillis();
+        }
+
+        public UUID getPartyId() {
+            return partyId;
+        }
+
+        public Raid getRaid() {
+            return raid;
+        }
+
+        public MessageReceiver getReceiver() {
+            return receiver;
+        }
+
+        public long getRequestedAt() {
+            return requestedAt;
+        }
+
+        /**
+         * Completes with the raid world once the party has been sent off.
+         */
+        public CompletableFuture<RaidManagedWorld> getFuture() {
+            return future;
+        }
+    }
+}
@@ -4,18 +4,36 @@ import com.dreamcove.minecraft.raids.api.Party;
 import com.dreamcove.minecraft.raids.api.World;
 import com.dreamcove.minecraft.raids.config.Raid;
 
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class RaidManagedWorld extends ManagedWorld {
-    public static int STATE_QUEUED = 0;
-    public static int STATE_STARTED = 1;
-    public static int STATE_CANCELED = 2;
     private final Raid raid;
     private final Party party;
-    private int state;
+    private final Set<UUID> memberIds;
+    private final StateListener listener;
+    private final AtomicReference<RaidState> state = new AtomicReference<>(RaidState.PREPARING);
+    private final AtomicLongArray enteredAt = new AtomicLongArray(RaidState.values().length);
 
     public RaidManagedWorld(World world, Raid raid, Party party) {
+        this(world, raid, party, null, System.currentTimeMillis());
+    }
+
+    /**
+     * @param preparingSince when preparation of the world started
+     */
+    public RaidManagedWorld(World world, Raid raid, Party party, StateListener listener, long preparingSince) {
         super(world);
         this.raid = raid;
         this.party = party;
+        this.memberIds = Collections.unmodifiableSet(new HashSet<>(party.getMembers()));
+        this.listener = listener;
+        this.enteredAt.set(RaidState.PREPARING.ordinal(), preparingSince);
+
+        if (listener != null) {
+            listener.onCreated(this);
+        }
     }
 
     public Raid getRaid() {
@@ -26,16 +44,85 @@ public class RaidManagedWorld extends ManagedWorld {
         return party;
     }
 
+    @Override
+    public String getDungeonName() {
+        return raid.getDungeonName();
+    }
+
+    @Override
+    public Collection<UUID> getMemberIds() {
+        return memberIds;
+    }
+
     @Override
     public boolean isExpired() {
-        return getState() == STATE_CANCELED || getState() == STATE_STARTED && getWorld().getPlayers().isEmpty();
+        switch (getState()) {
+            case PREPARING:
+            case QUEUED:
+            case STARTING:
+                return false;
+            case RUNNING:
+            case ENDING:
+                return super.isExpired();
+            default:
+                return true;
+        }
     }
 
-    public int getState() {
-        return state;
+    public RaidState getState() {
+        return state.get();
     }
 
-    public void setState(int state) {
-        this.state = state;
+    /**
+     * Moves the raid to a new state if it is still in the expected one.
+     *
+     * @return false when another caller changed the state first
+     * @throws IllegalArgumentException if the lifecycle does not allow the transition
+     */
+    public boolean transition(RaidState from, RaidState to) {
+        if (!from.canTransitionTo(to)) {
+            throw new IllegalArgumentException("Invalid raid state transition " + from + " -> " + to);
+        }
+
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        enteredAt.set(to.ordinal(), now);
+
+        if (listener != null) {
+            listener.onTransition(this, from, to, now - enteredAt.get(from.ordinal()));
+        }
+
+        return true;
+    }
+
+    /**
+     * Cancels the raid from whatever state still allows it.
+     */
+    public boolean cancel() {
+        RaidState current;
+
+        while ((current = getState()).canTransitionTo(RaidState.CANCELED)) {
+            if (transition(current, RaidState.CANCELED)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns when the raid entered the state, or 0 if it never did.
+     */
+    public long getEnteredAt(RaidState state) {
+        return enteredAt.get(state.ordinal());
+    }
+
+    public interface StateListener {
+        void onCreated(RaidManagedWorld world);
+
+        void onTransition(RaidManagedWorld world, RaidState from, RaidState to, long millisInFrom);
     }
 }
@@ -0,0 +1,36 @@
+package com.dreamcove.minecraft.raids;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Lifecycle of a raid instance. A raid normally moves PREPARING, QUEUED, STARTING, RUNNING,
+ * ENDING, CLEANING and DONE; it can be canceled any time before it ends.
+ */
+public enum RaidState {
+    PREPARING,
+    QUEUED,
+    STARTING,
+    RUNNING,
+    ENDING,
+    CLEANING,
+    DONE,
+    CANCELED;
+
+    private Set<RaidState> next;
+
+    static {
+        PREPARING.next = EnumSet.of(QUEUED, CANCELED);
+        QUEUED.next = EnumSet.of(STARTING, CANCELED);
+        STARTING.next = EnumSet.of(RUNNING, CANCELED);
+        RUNNING.next = EnumSet.of(ENDING, CANCELED);
+        ENDING.next = EnumSet.of(CLEANING);
+        CANCELED.next = EnumSet.of(CLEANING);
+        CLEANING.next = EnumSet.of(DONE);
+        DONE.next = EnumSet.noneOf(RaidState.class);
+    }
+
+    public boolean canTransitionTo(RaidState state) {
+        return next.contains(state);
+    }
+}
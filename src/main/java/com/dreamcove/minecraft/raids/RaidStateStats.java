@@ -0,0 +1,42 @@
+package com.dreamcove.minecraft.raids;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * RaidStateStats counts the raid instances in each lifecycle state and how long they
+ * stayed there.
+ */
+public class RaidStateStats implements RaidManagedWorld.StateListener {
+    private final AtomicLongArray entered = new AtomicLongArray(RaidState.values().length);
+    private final AtomicLongArray left = new AtomicLongArray(RaidState.values().length);
+    private final AtomicLongArray millis = new AtomicLongArray(RaidState.values().length);
+
+    @Override
+    public void onTransition(RaidManagedWorld world, RaidState from, RaidState to, long millisInFrom) {
+        left.incrementAndGet(from.ordinal());
+        millis.addAndGet(from.ordinal(), millisInFrom);
+        entered.incrementAndGet(to.ordinal());
+    }
+
+    @Override
+    public void onCreated(RaidManagedWorld world) {
+        entered.incrementAndGet(world.getState().ordinal());
+    }
+
+    public long getEntered(RaidState state) {
+        return entered.get(state.ordinal());
+    }
+
+    /**
+     * Number of instances currently in the state.
+     */
+    public long getCurrent(RaidState state) {
+        return entered.get(state.ordinal()) - left.get(state.ordinal());
+    }
+
+    public double getAverageSeconds(RaidState state) {
+        long count = left.get(state.ordinal());
+
+        return count == 0 ? 0 : millis.get(state.ordinal()) / 1000.0 / count;
+    }
+}
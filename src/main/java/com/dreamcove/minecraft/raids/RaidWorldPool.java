@@ -0,0 +1,79 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.api.World;
+import com.dreamcove.minecraft.raids.config.Raid;
+
+import java.util.*;
+
+/**
+ * RaidWorldPool holds raid worlds that have already been generated and set up so a
+ * party can be handed one without waiting on extraction.
+ */
+public class RaidWorldPool {
+    private final Map<String, Deque<World>> worlds = new HashMap<>();
+    private long hits;
+    private long misses;
+
+    public synchronized World take(Raid raid) {
+        Deque<World> ready = worlds.get(raid.getName());
+        World result = ready == null ? null : ready.poll();
+
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+
+        return result;
+    }
+
+    public synchronized void add(Raid raid, World world) {
+        worlds.computeIfAbsent(raid.getName(), k -> new ArrayDeque<>()).add(world);
+    }
+
+    public synchronized int getDeficit(Raid raid) {
+        return Math.max(0, raid.getPoolSize() - getSize(raid.getName()));
+    }
+
+    public synchronized int getSize(String raidName) {
+        Deque<World> ready = worlds.get(raidName);
+        return ready == null ? 0 : ready.size();
+    }
+
+    public synchronized boolean contains(String worldName) {
+        return worlds.values().stream()
+                .flatMap(Collection::stream)
+                .anyMatch(w -> w.getName().equals(worldName));
+    }
+
+    /**
+     * Removes and returns pooled worlds for raids that are not in the given list.
+     */
+    public synchronized List<World> retain(Collection<String> raidNames) {
+        List<World> result = new ArrayList<>();
+
+        Iterator<Map.Entry<String, Deque<World>>> iterator = worlds.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Deque<World>> entry = iterator.next();
+
+            if (!raidNames.contains(entry.getKey())) {
+                result.addAll(entry.getValue());
+                iterator.remove();
+            }
+        }
+
+        return result;
+    }
+
+    public synchronized List<World> clear() {
+        return retain(Collections.emptyList());
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -1,9 +1,10 @@
 package com.dreamcove.minecraft.raids;
 
 import com.dreamcove.minecraft.raids.api.*;
+import com.dreamcove.minecraft.raids.config.LocationStoreType;
 import com.dreamcove.minecraft.raids.config.Raid;
 import com.dreamcove.minecraft.raids.config.RaidsConfig;
-import com.dreamcove.minecraft.raids.utils.FileUtilities;
+import com.dreamcove.minecraft.raids.utils.TimingWheel;
 import org.bukkit.Difficulty;
 import org.bukkit.WorldCreator;
 import org.bukkit.configuration.InvalidConfigurationException;
@@ -14,12 +15,11 @@ import java.io.*;
 import java.net.URL;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 
 /**
  * RaidsManager handles the logic around the management of the raid.
@@ -38,6 +38,9 @@ public class RaidsManager {
     public static final String CMD_PACKAGE = "package";
     public static final String CMD_EDIT = "edit";
     public static final String CMD_SAVE = "save";
+    public static final String CMD_STATS = "stats";
+    public static final String CMD_OPTIMIZE = "optimize";
+    public static final String CMD_MIGRATE = "migrate";
     protected static final List<String> ALL_COMMANDS = Arrays.asList(
             CMD_RELOAD,
             CMD_START,
@@ -47,19 +50,88 @@ public class RaidsManager {
             CMD_PACKAGE,
             CMD_EDIT,
             CMD_SAVE,
+            CMD_OPTIMIZE,
+            CMD_STATS,
+            CMD_MIGRATE,
             CMD_HELP
     );
     private static final String CONFIG_NAME = "config.yml";
+    private static final String LOCATIONS_YAML = "locations.yml";
+    private static final String LOCATIONS_BINARY = "locations.dat";
+    private static final String LOCATIONS_SQLITE = "locations.db";
+    private static final String LOCATIONS_SNAPSHOT = "locations.snapshot";
+    private static final String LOCATIONS_JOURNAL = "locations.journal";
+    private static final int IO_THREADS = 2;
+    private static final String TRASH_NAME = ".trash";
+    private static final String TIMER_START = "start";
+    private static final String TIMER_EXPIRY = "expiry";
+    private static final String TIMER_DURATION = "duration";
     private final File dataDirectory;
-    private final List<ManagedWorld> managedWorlds = Collections.synchronizedList(new ArrayList<>());
-    private final LocationManager locationManager;
-    private RaidsConfig raidsConfig;
+    private final ManagedWorldRegistry managedWorlds = new ManagedWorldRegistry();
+    private LocationManager locationManager;
+    private LocationStoreType activeLocationStore;
+    private final InstanceLog instanceLog;
+    private final DungeonTemplateCache templateCache;
+    private final RaidWorldPool worldPool = new RaidWorldPool();
+    private final WorldTrash worldTrash;
+    private final WorldScrubber scrubber = new WorldScrubber();
+    private final Map<String, Raid> recycleCandidates = new ConcurrentHashMap<>();
+    private final Map<String, Raid> recycling = new ConcurrentHashMap<>();
+    private final Map<UUID, ManagedWorld> occupiedWorlds = new ConcurrentHashMap<>();
+    private final TimingWheel timers = new TimingWheel();
+    private final Map<String, RaidManagedWorld> cleaning = new ConcurrentHashMap<>();
+    private final RaidStateStats stateStats = new RaidStateStats();
+    private final RaidManagedWorld.StateListener stateListener = new RaidManagedWorld.StateListener() {
+        @Override
+        public void onCreated(RaidManagedWorld world) {
+            stateStats.onCreated(world);
+            instanceLog.recordCreated(world);
+        }
+
+        @Override
+        public void onTransition(RaidManagedWorld world, RaidState from, RaidState to, long millisInFrom) {
+            stateStats.onTransition(world, from, to, millisInFrom);
+
+            if (to == RaidState.DONE) {
+                instanceLog.recordRemoved(world.getName());
+            } else {
+                instanceLog.recordState(world.getName(), to);
+            }
+        }
+    };
+    private final RaidAdmissionQueue admission = new RaidAdmissionQueue();
+    private final AtomicInteger preparing = new AtomicInteger();
+    private final Map<UUID, CompletableFuture<RaidManagedWorld>> startingRaids = new ConcurrentHashMap<>();
+    // Admitted tickets whose world is still being prepared
+    private final Map<UUID, RaidAdmissionQueue.Ticket> preparingTickets = new ConcurrentHashMap<>();
+    private int timerTaskId;
+    private volatile boolean scrubberDraining;
+    private final ExecutorService ioExecutor;
+    private final Executor mainThread = runnable -> getServer().runTask(runnable);
+    private volatile RaidsConfig raidsConfig = new RaidsConfig();
+    private RaidsConfig startupConfig;
+    private volatile List<String> dungeonCatalog = Collections.emptyList();
+    private DataDirectoryWatcher watcher;
     private boolean running;
+    private volatile long lastStartAt;
+    private volatile boolean refilling;
 
     // Constructors
     public RaidsManager(File dataDirectory) {
         this.dataDirectory = dataDirectory;
-        this.locationManager = new LocationManager(new File(dataDirectory, "locations.yml"));
+        this.instanceLog = new InstanceLog(new File(dataDirectory, "instances.log"));
+        this.templateCache = new DungeonTemplateCache(new File(dataDirectory, "templates"));
+        this.worldTrash = new WorldTrash(new File(EntityFactory.getInstance().getServer().getWorldContainer(), TRASH_NAME));
+        this.ioExecutor = Executors.newFixedThreadPool(IO_THREADS, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "PartyRaids-IO-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
         initialize();
     }
 
@@ -69,81 +141,184 @@ public class RaidsManager {
 
     private void initialize() {
         running = true;
+        loadDefaults();
+        refreshDungeons();
+
         try {
-            loadDefaults();
+            raidsConfig = parseConfig();
         } catch (IOException | InvalidConfigurationException exc) {
-            getLogger().warning("Error loading defaults: " + exc);
+            // Runs on an empty config until a reload succeeds
+            getLogger().log(Level.SEVERE, "Error loading configuration", exc);
         }
 
+        // Set before the watcher starts, since its first reload compares against it
+        startupConfig = getRaidsConfig();
+
+        if (startupConfig.isAutoReload()) {
+            try {
+                watcher = new DataDirectoryWatcher(new File(getDataDirectory(), CONFIG_NAME), getDungeonDirectory(),
+                        startupConfig.getReloadDebounce(), this::reload, this::refreshDungeons);
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Unable to watch the data directory, use /raids reload after changes", e);
+            }
+        }
+
+        locationManager = new LocationManager(openActiveLocationStore());
+
+        applyConfig(startupConfig);
+        worldTrash.resume();
+        reconcileInstances();
+
+        // Every plugin timer hangs off the wheel, which this single repeating task drives
+        timerTaskId = getServer().repeatRunnable(timers::advance, 1, 1);
+
         startScrubber();
+        startPoolRefill();
+    }
+
+    /**
+     * Cleans up after raid instances left by the last run, e.g. after a crash. Raid world
+     * folders nothing has loaded are trashed, members still standing in an old instance are
+     * sent back, and the instance log starts over.
+     */
+    private void reconcileInstances() {
+        Map<String, InstanceLog.Entry> leftovers = instanceLog.load();
+        String prefix = getRaidsConfig().getRaidWorldPrefix();
+        File[] folders = getServer().getWorldContainer().listFiles(f -> f.isDirectory() && f.getName().startsWith(prefix));
+        int orphans = 0;
+
+        leftovers.values().forEach(e -> e.getMemberIds().stream()
+                .map(id -> getServer().getPlayer(id))
+                .filter(p -> p != null && p.getWorld().getName().equals(e.getWorldName()))
+                .forEach(p -> returnLastLocation(p.getUniqueId())));
+
+        if (folders != null) {
+            for (File folder : folders) {
+                // Loaded worlds are left to the scrubber
+                if (getServer().getWorld(folder.getName()) == null) {
+                    try {
+                        worldTrash.trash(folder);
+                        orphans++;
+                    } catch (IOException e) {
+                        getLogger().log(Level.WARNING, "Unable to remove orphaned world " + folder.getName(), e);
+                    }
+                }
+            }
+        }
+
+        if (!leftovers.isEmpty() || orphans > 0) {
+            getLogger().info(MessageFormat.format("Reconciled {0} raid instances from the last run, {1} orphaned worlds removed",
+                    String.valueOf(leftovers.size()), String.valueOf(orphans)));
+        }
+
+        try {
+            instanceLog.compact(Collections.emptyList());
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Unable to compact instance log", e);
+        }
     }
 
     private void startScrubber() {
         int cycle = Math.max(getRaidsConfig().getCleanCycle(), 5);
-        EntityFactory.getInstance().getServer().delayRunnable(() -> {
+        timers.schedule(cycle * 20L, () -> {
             if (running) {
                 cleanManagedWorlds();
                 startScrubber();
             }
-        }, cycle * 20L);
+        });
     }
 
-    public synchronized RaidsConfig getRaidsConfig() {
-        if (raidsConfig == null) {
+    private void startPoolRefill() {
+        int interval = Math.max(getRaidsConfig().getPoolRefillInterval(), 1);
+        timers.schedule(interval * 20L, () -> {
+            if (running) {
+                refillPool();
+                startPoolRefill();
+            }
+        });
+    }
 
-            File file = new File(getDataDirectory(), CONFIG_NAME);
+    private void refillPool() {
+        List<String> raidNames = getAvailableRaids();
 
-            try (InputStream is = new FileInputStream(file); BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
+        worldPool.retain(raidNames).forEach(w -> {
+            try {
+                removeWorld(w);
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Unable to remove pooled world " + w.getName(), e);
+            }
+        });
 
-                StringBuilder result = new StringBuilder();
-                String line;
+        // Only prepare worlds while no party is starting, and only one at a time
+        if (refilling || System.currentTimeMillis() - lastStartAt < Math.max(getRaidsConfig().getPoolRefillInterval(), 1) * 1000L) {
+            return;
+        }
 
-                while ((line = br.readLine()) != null) {
-                    result.append(line).append("\n");
-                }
+        Raid raid = getRaidsConfig().getRaids().stream()
+                .filter(r -> worldPool.getDeficit(r) > getRecycling(r))
+                .findFirst()
+                .orElse(null);
 
-                YamlConfiguration yamlConfig = new YamlConfiguration();
-                yamlConfig.loadFromString(result.toString());
+        if (raid != null) {
+            refilling = true;
 
-                raidsConfig = RaidsConfig.from(yamlConfig);
-            } catch (Exception ioExc) {
-                getLogger().log(Level.SEVERE, "Error loading configuration", ioExc);
-            }
+            // A failed extraction completes on the I/O thread, so always finish on the main thread
+            prepareRaidWorld(raid).whenCompleteAsync((world, exc) -> {
+                refilling = false;
 
-            if (raidsConfig == null) {
-                // Default to an empty config on error
-                raidsConfig = new RaidsConfig();
-            }
+                if (exc != null) {
+                    getLogger().log(Level.WARNING, "Unable to prepare pooled world for raid " + raid.getName(), exc);
+                } else {
+                    keepOrRemove(raid, world);
+                }
+            }, mainThread);
         }
+    }
 
+    public RaidWorldPool getWorldPool() {
+        return worldPool;
+    }
+
+    public WorldTrash getWorldTrash() {
+        return worldTrash;
+    }
+
+    public RaidsConfig getRaidsConfig() {
         return raidsConfig;
     }
 
-    private void packageFile(ZipOutputStream zos, File file, String entryName) throws IOException {
-        if (file.isDirectory()) {
-            zos.putNextEntry(new ZipEntry(entryName + "/"));
+    private RaidsConfig parseConfig() throws IOException, InvalidConfigurationException {
+        File file = new File(getDataDirectory(), CONFIG_NAME);
 
-            for (File f : Objects.requireNonNull(file.listFiles())) {
-                packageFile(zos, f, entryName + "/" + f.getName());
-            }
-        } else {
-            zos.putNextEntry(new ZipEntry(entryName));
+        try (InputStream is = new FileInputStream(file); BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
 
-            try (FileInputStream fis = new FileInputStream(file)) {
+            StringBuilder result = new StringBuilder();
+            String line;
 
-                byte[] buffer = new byte[1024];
-                int read;
+            while ((line = br.readLine()) != null) {
+                result.append(line).append("\n");
+            }
 
-                while ((read = fis.read(buffer)) > 0) {
-                    zos.write(buffer, 0, read);
-                }
+            YamlConfiguration yamlConfig = new YamlConfiguration();
+            yamlConfig.loadFromString(result.toString());
 
-                zos.closeEntry();
+            if (!yamlConfig.isConfigurationSection("raids")) {
+                throw new InvalidConfigurationException(CONFIG_NAME + " has no raids section");
+            }
+
+            try {
+                return RaidsConfig.from(yamlConfig);
+            } catch (IllegalArgumentException e) {
+                throw new InvalidConfigurationException(e.getMessage());
             }
         }
     }
 
-    private void packageWorld(String worldName, String dungeonName, boolean forceUpdate) throws RaidsException {
+    /**
+     * Saves the world on the main thread and zips it on the I/O executor. The future
+     * completes on the main thread once the dungeon can be used.
+     */
+    private CompletableFuture<DungeonPackager.Result> packageWorld(String worldName, String dungeonName, boolean forceUpdate) throws RaidsException {
         World w = EntityFactory.getInstance().getServer().getWorld(worldName);
 
         if (w == null) {
@@ -156,14 +331,52 @@ public class RaidsManager {
 
         w.save();
 
+        File worldFolder = w.getWorldFolder();
+        File dungeonFile = new File(getDungeonDirectory(), dungeonName + ".zip");
+        RaidsConfig config = getRaidsConfig();
+        DungeonPackager packager = new DungeonPackager(config.getPackageFormat(), config.getPackageParallelism());
+
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    try {
+                        return packager.packageWorld(worldFolder, dungeonFile);
+                    } catch (IOException ioExc) {
+                        throw new CompletionException(new RaidsException("Error packaging dungeon", ioExc));
+                    }
+                }, ioExecutor)
+                // Don't wait for the watcher, the dungeon should be usable right away
+                .whenCompleteAsync((result, exc) -> refreshDungeons(), mainThread);
+    }
+
+    public CompletableFuture<DungeonOptimizer.Result> optimizeDungeon(String dungeonName) {
         File dungeonFile = new File(getDungeonDirectory(), dungeonName + ".zip");
+        RaidsConfig config = getRaidsConfig();
+        DungeonOptimizer optimizer = new DungeonOptimizer(
+                config.getOptimizerExcludes(),
+                config.getDungeonBounds().get(dungeonName),
+                config.getExtractParallelism());
+
+        return CompletableFuture.supplyAsync(() -> {
+            if (!dungeonFile.exists()) {
+                throw new CompletionException(new RaidsException("Dungeon " + dungeonName + " does not exist"));
+            }
 
-        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(dungeonFile))) {
-            for (File f : Objects.requireNonNull(w.getWorldFolder().listFiles())) {
-                packageFile(zos, f, f.getName());
+            try {
+                return optimizer.optimize(dungeonFile);
+            } catch (IOException e) {
+                throw new CompletionException(e);
             }
-        } catch (IOException ioExc) {
-            throw new RaidsException("Error packaging dungeon", ioExc);
+        }, ioExecutor);
+    }
+
+    private void reportOptimization(MessageReceiver receiver, String dungeonName, DungeonOptimizer.Result result, Throwable exc) {
+        if (exc != null) {
+            Throwable cause = exc instanceof CompletionException ? exc.getCause() : exc;
+            receiver.sendMessage("Unable to optimize dungeon " + dungeonName + ": " + cause.getMessage());
+            getLogger().log(Level.WARNING, "Unable to optimize dungeon " + dungeonName, cause);
+        } else {
+            receiver.sendMessage("Dungeon " + dungeonName + " optimized: " + result);
+            getLogger().info("Dungeon " + dungeonName + " optimized: " + result);
         }
     }
 
@@ -171,7 +384,7 @@ public class RaidsManager {
         running = false;
 
         getServer().getWorlds().stream()
-                .filter(w -> w.getName().startsWith(raidsConfig.getRaidWorldPrefix()))
+                .filter(w -> w.getName().startsWith(getRaidsConfig().getRaidWorldPrefix()))
                 .forEach(w -> {
                     w.getPlayers().stream().map(Player::getUniqueId).forEach(this::returnLastLocation);
 
@@ -183,6 +396,27 @@ public class RaidsManager {
                 });
 
         managedWorlds.clear();
+        worldPool.clear();
+
+        // Every raid world was just removed
+        try {
+            instanceLog.compact(Collections.emptyList());
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Unable to compact instance log", e);
+        }
+
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Unable to stop watching the data directory", e);
+            }
+        }
+
+        ioExecutor.shutdown();
+        worldTrash.shutdown();
+        locationManager.close();
+        getServer().cancelTask(timerTaskId);
     }
 
     private Server getServer() {
@@ -190,20 +424,103 @@ public class RaidsManager {
     }
 
     public void returnLastLocation(UUID playerId) {
-        WorldLocation worldLoc = locationManager.remove(playerId);
+        WorldLocation worldLoc = locationManager.get(playerId);
 
         if (worldLoc != null) {
             Player player = EntityFactory.getInstance().getServer().getPlayer(playerId);
 
+            if (worldLoc.getWorld() == null) {
+                WorldLocation fallback = getFallbackLocation();
+
+                if (fallback == null) {
+                    // Keep the location, the world may still be loaded later
+                    getLogger().warning("Unable to return " + player.getName() + ", world " + worldLoc.getWorldName() + " does not exist");
+                    return;
+                }
+
+                getLogger().warning("World " + worldLoc.getWorldName() + " does not exist, returning " + player.getName() + " to the spawn of " + fallback.getWorldName());
+                worldLoc = fallback;
+            }
+
+            locationManager.remove(playerId);
+
             getLogger().info("Returning " + player.getName() + " to " + worldLoc.getWorld().getName());
             player.teleport(worldLoc);
+            updateOccupancy(playerId, worldLoc.getWorld().getName());
+        }
+    }
+
+    /**
+     * Spawn of the configured fallback world, or of the first world that is not a raid.
+     */
+    private WorldLocation getFallbackLocation() {
+        String worldName = getRaidsConfig().getFallbackWorld();
+        World world;
+
+        if (worldName == null || worldName.isEmpty()) {
+            world = getServer().getWorlds().stream()
+                    .filter(w -> !w.getName().startsWith(getRaidsConfig().getRaidWorldPrefix()))
+                    .findFirst()
+                    .orElse(null);
+        } else {
+            world = getServer().getWorld(worldName);
+        }
+
+        return world == null ? null : world.getSpawnLocation();
+    }
+
+    /**
+     * Records which world a player is now in, or that they left the server when the world
+     * name is null. Called for the plugin's own teleports and from player events.
+     */
+    public void updateOccupancy(UUID playerId, String worldName) {
+        ManagedWorld to = worldName == null ? null : managedWorlds.getByName(worldName);
+        ManagedWorld from = to == null ? occupiedWorlds.remove(playerId) : occupiedWorlds.put(playerId, to);
+
+        if (to != null) {
+            to.addOccupant(playerId);
+            to.cancelTimer(TIMER_EXPIRY);
+        }
+
+        if (from != null && from != to && from.removeOccupant(playerId)) {
+            scheduleExpiry(from);
+        }
+    }
+
+    private void scheduleExpiry(ManagedWorld world) {
+        world.setTimer(TIMER_EXPIRY, timers.schedule(world.getExpiryGrace() / 50 + 1, () -> {
+            if (running && world.isExpired() && managedWorlds.remove(world)) {
+                retire(world);
+                drainScrubber();
+                admitWaiting();
+            }
+        }));
+    }
+
+    private void retire(ManagedWorld world) {
+        world.cancelTimers();
+
+        if (world instanceof RaidManagedWorld) {
+            RaidManagedWorld raidWorld = (RaidManagedWorld) world;
+
+            raidWorld.transition(RaidState.RUNNING, RaidState.ENDING);
+            if (raidWorld.transition(RaidState.ENDING, RaidState.CLEANING) || raidWorld.transition(RaidState.CANCELED, RaidState.CLEANING)) {
+                cleaning.put(world.getName(), raidWorld);
+            }
+
+            // Finished raids that can be recycled are remembered for the scrubber
+            if (raidWorld.getRaid().isRecycle()) {
+                recycleCandidates.put(world.getName(), raidWorld.getRaid());
+            }
         }
+
+        scrubber.offer(world.getName());
     }
 
     public void removeWorld(World world) throws IOException {
         if (EntityFactory.getInstance().getServer().unloadWorld(world.getName())) {
             getLogger().info("Removing raid " + world.getName());
-            FileUtilities.deleteFile(world.getWorldFolder());
+            worldTrash.trash(world.getWorldFolder());
             getLogger().info(world.getName() + " removed.");
         }
     }
@@ -213,7 +530,9 @@ public class RaidsManager {
     }
 
     private void editDungeon(Player player, String dungeonName) throws RaidsException {
-        if (player.getWorld().getName().startsWith(getRaidsConfig().getRaidWorldPrefix())) {
+        ManagedWorld current = managedWorlds.getByPlayer(player.getUniqueId());
+
+        if (player.getWorld().getName().startsWith(getRaidsConfig().getRaidWorldPrefix()) || current != null && current.isActive()) {
             throw new RaidsException("You must not already be editing a dungeon or playing a raid");
         }
 
@@ -221,11 +540,13 @@ public class RaidsManager {
             World w = generateDungeon(dungeonName);
             w.setDifficulty(Difficulty.PEACEFUL);
 
-            DungeonManagedWorld managedWorld = new DungeonManagedWorld(w, dungeonName);
+            DungeonManagedWorld managedWorld = new DungeonManagedWorld(w, dungeonName, player.getUniqueId());
+            managedWorld.setExpiryGrace(getRaidsConfig().getExpiryGrace() * 1000L);
             managedWorlds.add(managedWorld);
 
             storeLastLocation(player);
             player.teleport(w.getSpawnLocation());
+            updateOccupancy(player.getUniqueId(), w.getName());
 
             player.sendMessage("You've been teleported to the " + dungeonName + " for editing");
             player.sendMessage("Use /raids save to save your changes");
@@ -236,24 +557,71 @@ public class RaidsManager {
         }
     }
 
-    private void saveChanges(Player player) throws RaidsException {
-        DungeonManagedWorld world = managedWorlds.stream()
-                .filter(w -> w instanceof DungeonManagedWorld)
-                .map(w -> (DungeonManagedWorld) w)
-                .filter(ManagedWorld::isActive)
-                .filter(w -> w.getWorld().getName().equals(player.getWorld().getName()))
-                .findFirst()
-                .orElse(null);
+    private CompletableFuture<DungeonPackager.Result> saveChanges(Player player) throws RaidsException {
+        ManagedWorld managedWorld = managedWorlds.getByName(player.getWorld().getName());
+        DungeonManagedWorld world = managedWorld instanceof DungeonManagedWorld && managedWorld.isActive() ? (DungeonManagedWorld) managedWorld : null;
 
         if (world == null) {
             throw new RaidsException("You can only save changes while in a dungeon being edited");
         }
 
-        packageWorld(world.getName(), world.getDungeon(), true);
+        return packageWorld(world.getName(), world.getDungeon(), true);
+    }
+
+    /**
+     * Parses config.yml off the main thread and swaps the new snapshot in. When parsing
+     * fails the current configuration stays in place.
+     */
+    public CompletableFuture<RaidsConfig> reload() {
+        long start = System.currentTimeMillis();
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                RaidsConfig config = parseConfig();
+                publishConfig(config);
+                warnRestartOnly(config);
+                getLogger().info(MessageFormat.format("Configuration reloaded in {0} ms, {1} raids",
+                        String.valueOf(System.currentTimeMillis() - start), String.valueOf(config.getRaids().size())));
+
+                return config;
+            } catch (IOException | InvalidConfigurationException e) {
+                getLogger().log(Level.SEVERE, "Error reloading configuration, keeping the current one", e);
+                throw new CompletionException(e);
+            }
+        }, ioExecutor);
+    }
+
+    /**
+     * Makes a fully built snapshot the current configuration, as a reload does.
+     */
+    void publishConfig(RaidsConfig config) {
+        raidsConfig = config;
+        applyConfig(config);
+    }
+
+    /**
+     * Pushes settings that are not read on every use into the parts of the plugin holding them.
+     */
+    private void applyConfig(RaidsConfig config) {
+        worldTrash.setBytesPerSecond(config.getTrashDeleteRate() * 1024L * 1024L);
     }
 
-    public void reload() {
-        raidsConfig = null;
+    private void warnRestartOnly(RaidsConfig config) {
+        List<String> changed = new ArrayList<>();
+
+        if (config.getLocationStore() != startupConfig.getLocationStore()) {
+            changed.add("location-store");
+        }
+        if (config.isAutoReload() != startupConfig.isAutoReload()) {
+            changed.add("auto-reload");
+        }
+        if (config.getReloadDebounce() != startupConfig.getReloadDebounce()) {
+            changed.add("reload-debounce");
+        }
+
+        if (!changed.isEmpty()) {
+            getLogger().warning("Changes to " + String.join(", ", changed) + " take effect after a restart");
+        }
     }
 
     // Instance Methods
@@ -277,13 +645,25 @@ public class RaidsManager {
         }
 
         if (perms.contains(getPermission(CMD_PACKAGE))) {
-            result.add("/raids package <world> <dungeon> [-f] - Package a world as dungeon level");
+            result.add("/raids package <world> <dungeon> [-f] [-o] - Package a world as dungeon level");
         }
 
         if (perms.contains(getPermission(CMD_RELOAD))) {
             result.add("/raids reload - Reload config for plugin");
         }
 
+        if (perms.contains(getPermission(CMD_OPTIMIZE))) {
+            result.add("/raids optimize <dungeon> - Drop unused data from a dungeon package");
+        }
+
+        if (perms.contains(getPermission(CMD_STATS))) {
+            result.add("/raids stats - Show raid world statistics");
+        }
+
+        if (perms.contains(getPermission(CMD_MIGRATE))) {
+            result.add("/raids migrate <from> <to> - Copy return locations between location stores");
+        }
+
         return result;
     }
 
@@ -296,6 +676,8 @@ public class RaidsManager {
                         .filter(c -> perms.contains(getPermission(c)))
                         .collect(Collectors.toList())
                 );
+            } else if (args.size() == 3 && args.get(0).equals(CMD_MIGRATE) && perms.contains(getPermission(CMD_MIGRATE))) {
+                Arrays.stream(LocationStoreType.values()).map(t -> t.name().toLowerCase()).forEach(result::add);
             } else if (args.size() == 2 && perms.contains(getPermission(args.get(0)))) {
                 switch (args.get(0)) {
                     case CMD_START:
@@ -309,8 +691,12 @@ public class RaidsManager {
                         );
                         break;
                     case CMD_EDIT:
+                    case CMD_OPTIMIZE:
                         result.addAll(getAvailableDungeons());
                         break;
+                    case CMD_MIGRATE:
+                        Arrays.stream(LocationStoreType.values()).map(t -> t.name().toLowerCase()).forEach(result::add);
+                        break;
                     default:
                 }
             }
@@ -324,59 +710,395 @@ public class RaidsManager {
     }
 
     public List<DungeonManagedWorld> getDungeonManagedWorlds() {
-        return managedWorlds.stream()
+        return managedWorlds.getAll().stream()
                 .filter(w -> w instanceof DungeonManagedWorld)
                 .filter(ManagedWorld::isActive)
                 .map(w -> (DungeonManagedWorld) w)
                 .collect(Collectors.toList());
     }
 
+    private LocationStore openLocationStore(LocationStoreType type) throws IOException {
+        switch (type) {
+            case YAML:
+                return new YamlLocationStore(new File(getDataDirectory(), LOCATIONS_YAML));
+            case JOURNAL:
+                return new LocationJournal(new File(getDataDirectory(), LOCATIONS_SNAPSHOT), new File(getDataDirectory(), LOCATIONS_JOURNAL));
+            case SQLITE:
+                return new SqliteLocationStore(new File(getDataDirectory(), LOCATIONS_SQLITE));
+            default:
+                return new BinaryLocationStore(new File(getDataDirectory(), LOCATIONS_BINARY));
+        }
+    }
+
+    private LocationStore openActiveLocationStore() {
+        LocationStoreType type = getRaidsConfig().getLocationStore();
+
+        if (type != LocationStoreType.BINARY) {
+            try {
+                LocationStore result = openLocationStore(type);
+                activeLocationStore = type;
+
+                return result;
+            } catch (IOException e) {
+                getLogger().log(Level.SEVERE, MessageFormat.format("Unable to open the {0} location store set by location-store, "
+                        + "falling back to the binary store", type.name().toLowerCase()), e);
+            }
+        }
+
+        activeLocationStore = LocationStoreType.BINARY;
+
+        // Also picks up locations.yml of earlier versions
+        return LocationManager.openBinaryStore(new File(getDataDirectory(), LOCATIONS_YAML));
+    }
+
+    /**
+     * Copies all return locations from one store to another, e.g. before switching
+     * location-store. The store in use can be the source but not the target. That is the
+     * store opened at startup, which a reloaded location-store setting does not change.
+     */
+    public CompletableFuture<Integer> migrateLocations(LocationStoreType from, LocationStoreType to) throws RaidsException {
+        LocationStoreType active = activeLocationStore;
+
+        if (from == to) {
+            throw new RaidsException("Source and target location store are the same");
+        }
+        if (to == active) {
+            throw new RaidsException("Cannot migrate into the location store in use");
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                if (from == active) {
+                    locationManager.flush();
+
+                    try (LocationStore target = openLocationStore(to)) {
+                        return LocationManager.migrate(locationManager.getStore(), target);
+                    }
+                }
+
+                try (LocationStore source = openLocationStore(from); LocationStore target = openLocationStore(to)) {
+                    return LocationManager.migrate(source, target);
+                }
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, ioExecutor);
+    }
+
     public void storeLastLocation(Player player) {
         locationManager.store(player.getUniqueId(), player.getLocation());
     }
 
     public RaidManagedWorld getRaidByParty(UUID partyId) {
-        return managedWorlds.stream()
-                .filter(ManagedWorld::isActive)
-                .filter(w -> w instanceof RaidManagedWorld)
-                .map(w -> (RaidManagedWorld) w)
-                .filter(w -> w.getParty().getId().equals(partyId))
-                .findFirst()
-                .orElse(null);
+        RaidManagedWorld result = managedWorlds.getByParty(partyId);
+
+        return result != null && result.isActive() ? result : null;
     }
 
     public void cleanManagedWorlds() {
-        // Trim our expired managed worlds out
-
-        managedWorlds.removeIf(ManagedWorld::isExpired);
-
-        List<String> activeWorldNames = managedWorlds.stream()
-                .map(ManagedWorld::getName)
-                .collect(Collectors.toList());
+        // Expiry is normally scheduled when a world empties, this catches the rest
+        managedWorlds.removeExpired().forEach(this::retire);
+        admitWaiting();
 
         // Worlds to remove
         getServer().getWorlds().stream()
                 .filter(w -> w.getName().startsWith(getRaidsConfig().getRaidWorldPrefix()))
-                .filter(w -> !activeWorldNames.contains(w.getName()))
-                .forEach(w -> {
+                .filter(w -> !managedWorlds.contains(w.getName()))
+                .filter(w -> !worldPool.contains(w.getName()))
+                .forEach(w -> scrubber.offer(w.getName()));
+
+        drainScrubber();
+    }
+
+    /**
+     * Unloads queued worlds within the per-tick budget, continuing on the next tick while
+     * any are left.
+     */
+    private void drainScrubber() {
+        RaidsConfig config = getRaidsConfig();
+        long deadline = System.nanoTime() + config.getCleanMaxMillis() * 1000000L;
+        int unloaded = 0;
+        String worldName;
+
+        while (unloaded < config.getCleanMaxUnloads() && System.nanoTime() < deadline && (worldName = scrubber.poll()) != null) {
+            World w = getServer().getWorld(worldName);
+            RaidManagedWorld finished = cleaning.remove(worldName);
+
+            // Skip worlds that were reclaimed while they waited
+            if (w == null || managedWorlds.contains(worldName) || worldPool.contains(worldName)) {
+                markDone(finished);
+                continue;
+            }
+
+            Raid raid = recycleCandidates.remove(worldName);
+            long start = System.nanoTime();
+
+            try {
+                if (raid != null && canRecycle(raid)) {
+                    recycleWorld(w, raid, finished);
+                } else {
                     getLogger().info("Removing unused world " + w.getName());
+                    removeWorld(w);
+                    markDone(finished);
+                }
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Unable to remove " + w.getName(), e);
+                markDone(finished);
+            }
+            scrubber.recordUnload(System.nanoTime() - start);
+            unloaded++;
+        }
+
+        if (running && scrubber.getQueueDepth() > 0 && !scrubberDraining) {
+            scrubberDraining = true;
+            timers.schedule(1, () -> {
+                scrubberDraining = false;
+                if (running) {
+                    drainScrubber();
+                }
+            });
+        }
+    }
+
+    private void markDone(RaidManagedWorld world) {
+        if (world != null) {
+            world.transition(RaidState.CLEANING, RaidState.DONE);
+        }
+    }
+
+    private long getRecycling(Raid raid) {
+        return recycling.values().stream().filter(r -> r.getName().equals(raid.getName())).count();
+    }
+
+    private boolean canRecycle(Raid raid) {
+        return getRaid(raid.getName()) != null
+                && worldPool.getSize(raid.getName()) + getRecycling(raid) < Math.max(1, raid.getPoolSize());
+    }
+
+    /**
+     * Unloads a finished raid world, restores only what the raid changed from the dungeon
+     * template and hands the world to the pool for the next party.
+     */
+    private void recycleWorld(World world, Raid raid, RaidManagedWorld finished) throws IOException {
+        String worldName = world.getName();
+        File worldDir = world.getWorldFolder();
+        File dungeonFile = new File(getDungeonDirectory(), raid.getDungeonName() + ".zip");
+        long start = System.currentTimeMillis();
+
+        if (!getServer().unloadWorld(worldName)) {
+            markDone(finished);
+            return;
+        }
 
+        recycling.put(worldName, raid);
+
+        CompletableFuture
+                .runAsync(() -> {
                     try {
-                        removeWorld(w);
+                        templateCache.reset(raid.getDungeonName(), dungeonFile, worldDir);
                     } catch (IOException e) {
-                        getLogger().log(Level.WARNING, "Unable to remove " + w.getName(), e);
+                        throw new CompletionException(e);
                     }
-                });
+                }, ioExecutor)
+                .thenCompose(v -> callOnMainThread(() -> setupRaidWorld(loadDungeonWorld(worldDir), raid)))
+                // A failed reset completes on the I/O thread, so always finish on the main thread
+                .whenCompleteAsync((recycled, exc) -> {
+                    recycling.remove(worldName);
+                    markDone(finished);
+
+                    try {
+                        if (exc != null) {
+                            getLogger().log(Level.WARNING, "Unable to recycle " + worldName, exc);
+                            worldTrash.trash(worldDir);
+                        } else if (!running) {
+                            removeWorld(recycled);
+                        } else {
+                            worldPool.add(raid, recycled);
+                            getLogger().info(MessageFormat.format("{0}: Recycled for raid {1} in {2} ms",
+                                    worldName, raid.getName(), System.currentTimeMillis() - start));
+                        }
+                    } catch (IOException e) {
+                        getLogger().log(Level.WARNING, "Unable to remove " + worldName, e);
+                    }
+                }, mainThread);
+    }
+
+    /**
+     * Sends everyone in a running raid back when its time is up.
+     */
+    private void endRaid(RaidManagedWorld world) {
+        if (managedWorlds.getByName(world.getName()) == world && world.transition(RaidState.RUNNING, RaidState.ENDING)) {
+            getLogger().info(MessageFormat.format("{0}: Raid time is up", world.getName()));
+            world.getParty().broadcastMessage("Raid time is up");
+
+            world.getMemberIds().stream()
+                    .filter(id -> occupiedWorlds.get(id) == world)
+                    .forEach(this::returnLastLocation);
+        }
+    }
+
+    /**
+     * Starts the raid right away when the instance limits allow it, otherwise puts the party
+     * in line.
+     */
+    private CompletableFuture<RaidManagedWorld> requestRaid(RaidAdmissionQueue.Ticket ticket) {
+        UUID partyId = ticket.getPartyId();
+        RaidManagedWorld current = getRaidByParty(partyId);
+
+        if (current != null) {
+            ticket.getReceiver().sendMessage("Your party is already in a raid");
+            return CompletableFuture.completedFuture(current);
+        }
+
+        // Single flight: repeated requests from the same party join the one in progress
+        CompletableFuture<RaidManagedWorld> inFlight = startingRaids.putIfAbsent(partyId, ticket.getFuture());
+        if (inFlight != null) {
+            ticket.getReceiver().sendMessage("The raid for your party is already being prepared");
+            return inFlight;
+        }
+        ticket.getFuture().whenComplete((w, exc) -> startingRaids.remove(partyId, ticket.getFuture()));
+
+        int position = 0;
+
+        synchronized (admission) {
+            if (admission.contains(ticket.getPartyId())) {
+                position = admission.getPosition(ticket.getPartyId());
+            } else if (admission.size() == 0 && hasCapacity()) {
+                preparing.incrementAndGet();
+            } else {
+                position = admission.offer(ticket);
+            }
+        }
+
+        if (position == 0) {
+            admitRaid(ticket);
+        } else {
+            getLogger().info(MessageFormat.format("Party {0} waiting for raid {1}, position {2}",
+                    PartyFactory.getInstance().getParty(ticket.getPartyId()).getName(), ticket.getRaid().getName(), String.valueOf(position)));
+            PartyFactory.getInstance().getParty(ticket.getPartyId()).broadcastMessage(
+                    "All raid instances are busy. Your party is number " + position + " in line.");
+        }
+
+        return ticket.getFuture();
+    }
+
+    private boolean hasCapacity() {
+        RaidsConfig config = getRaidsConfig();
+        // Pooled and recycling worlds are not counted, they become instances only when a party takes them
+        int instances = managedWorlds.getRaidCount() + preparing.get();
+
+        return (config.getMaxInstances() == 0 || instances < config.getMaxInstances())
+                && (config.getMaxPreparing() == 0 || preparing.get() < config.getMaxPreparing());
+    }
+
+    /**
+     * Starts waiting raids for as long as the instance limits allow.
+     */
+    private void admitWaiting() {
+        List<RaidAdmissionQueue.Ticket> admitted = new ArrayList<>();
+
+        synchronized (admission) {
+            while (admission.size() > 0 && hasCapacity()) {
+                admitted.add(admission.poll());
+                preparing.incrementAndGet();
+            }
+        }
+
+        if (!admitted.isEmpty()) {
+            admitted.forEach(this::admitRaid);
+
+            for (RaidAdmissionQueue.Ticket ticket : admission.getWaiting()) {
+                int position = admission.getPosition(ticket.getPartyId());
+
+                if (position > 0) {
+                    PartyFactory.getInstance().getParty(ticket.getPartyId()).broadcastMessage("Your party is now number " + position + " in line.");
+                }
+            }
+        }
+    }
+
+    private void admitRaid(RaidAdmissionQueue.Ticket ticket) {
+        UUID partyId = ticket.getPartyId();
+        Raid raid = ticket.getRaid();
+
+        lastStartAt = System.currentTimeMillis();
+
+        World w = worldPool.take(raid);
+        if (w != null) {
+            ticket.getFuture().complete(startRaid(partyId, w, raid, ticket.getRequestedAt()));
+            preparing.decrementAndGet();
+        } else {
+            PartyFactory.getInstance().getParty(partyId).broadcastMessage("Preparing raid dungeon...");
+            preparingTickets.put(partyId, ticket);
+
+            // A failed extraction completes on the I/O thread, so always finish on the main thread
+            prepareRaidWorld(raid).whenCompleteAsync((world, exc) -> {
+                if (!preparingTickets.remove(partyId, ticket)) {
+                    // Canceled while preparing, so the world goes to the pool instead
+                    preparing.decrementAndGet();
+                    if (exc == null) {
+                        keepOrRemove(raid, world);
+                    }
+                } else if (exc != null) {
+                    Throwable cause = exc instanceof CompletionException ? exc.getCause() : exc;
+                    ticket.getReceiver().sendMessage("Error creating raid: " + cause);
+                    getLogger().log(Level.WARNING, "Error creating raid " + raid.getName(), cause);
+                    preparing.decrementAndGet();
+                    ticket.getFuture().completeExceptionally(cause);
+                } else {
+                    ticket.getFuture().complete(startRaid(partyId, world, raid, ticket.getRequestedAt()));
+                    preparing.decrementAndGet();
+                }
+
+                admitWaiting();
+            }, mainThread);
+        }
+    }
+
+    /**
+     * Pools a world prepared for a party that no longer wants it, or removes it when the pool
+     * is full.
+     */
+    private void keepOrRemove(Raid raid, World world) {
+        if (running && worldPool.getDeficit(raid) > 0) {
+            worldPool.add(raid, world);
+            getLogger().info(MessageFormat.format("{0}: Added to pool for raid {1}", world.getName(), raid.getName()));
+        } else {
+            try {
+                removeWorld(world);
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Unable to remove " + world.getName(), e);
+            }
+        }
     }
 
     public boolean cancelRaid(UUID partyId) {
+        RaidAdmissionQueue.Ticket waiting = admission.remove(partyId);
+
+        if (waiting == null) {
+            waiting = preparingTickets.remove(partyId);
+        }
+
+        if (waiting != null) {
+            waiting.getFuture().cancel(false);
+            PartyFactory.getInstance().getParty(partyId).broadcastMessage("Raid canceled");
+
+            return true;
+        }
+
         RaidManagedWorld w = getRaidByParty(partyId);
 
-        if (w != null && w.getState() == RaidManagedWorld.STATE_QUEUED) {
-            w.setState(RaidManagedWorld.STATE_CANCELED);
+        if (w != null && w.transition(RaidState.QUEUED, RaidState.CANCELED)) {
+            w.cancelTimer(TIMER_START);
 
             PartyFactory.getInstance().getParty(partyId).broadcastMessage("Raid canceled");
 
+            // The canceled world no longer counts against the limits
+            if (managedWorlds.remove(w)) {
+                retire(w);
+                admitWaiting();
+            }
+
             return true;
         }
 
@@ -384,10 +1106,15 @@ public class RaidsManager {
     }
 
     public void startRaid(UUID partyId, World newWorld, Raid raid) {
+        startRaid(partyId, newWorld, raid, System.currentTimeMillis());
+    }
+
+    private RaidManagedWorld startRaid(UUID partyId, World newWorld, Raid raid, long preparingSince) {
         Party party = PartyFactory.getInstance().getParty(partyId);
 
-        RaidManagedWorld raidManagedWorld = new RaidManagedWorld(newWorld, raid, party);
-        raidManagedWorld.setState(RaidManagedWorld.STATE_QUEUED);
+        RaidManagedWorld raidManagedWorld = new RaidManagedWorld(newWorld, raid, party, stateListener, preparingSince);
+        raidManagedWorld.transition(RaidState.PREPARING, RaidState.QUEUED);
+        raidManagedWorld.setExpiryGrace(getRaidsConfig().getExpiryGrace() * 1000L);
         managedWorlds.add(raidManagedWorld);
 
         if (raid.getJoinIn() > 0) {
@@ -396,7 +1123,9 @@ public class RaidsManager {
             party.broadcastMessage("Use /raids cancel to abort.");
         }
 
-        EntityFactory.getInstance().getServer().delayRunnable(new StartRaidRunnable(partyId), (long) raid.getJoinIn() * 20);
+        raidManagedWorld.setTimer(TIMER_START, timers.schedule((long) raid.getJoinIn() * 20, new StartRaidRunnable(partyId)));
+
+        return raidManagedWorld;
     }
 
     public boolean processCommand(MessageReceiver receiver, String command, List<String> args, List<String> perms) {
@@ -418,7 +1147,15 @@ public class RaidsManager {
                     switch (args.get(0)) {
                         case CMD_SAVE:
                             try {
-                                saveChanges(player);
+                                saveChanges(player).whenComplete((packaged, exc) -> {
+                                    if (exc != null) {
+                                        Throwable cause = exc instanceof CompletionException ? exc.getCause() : exc;
+                                        receiver.sendMessage(cause.getMessage());
+                                        getLogger().log(Level.WARNING, cause.getMessage(), cause);
+                                    } else {
+                                        receiver.sendMessage("Dungeon saved: " + packaged);
+                                    }
+                                });
                             } catch (RaidsException e) {
                                 receiver.sendMessage(e.getMessage());
                                 getLogger().log(Level.WARNING, e.getMessage(), e);
@@ -435,8 +1172,51 @@ public class RaidsManager {
                             }
                             break;
                         case CMD_RELOAD:
-                            reload();
-                            receiver.sendMessage("Config reloaded. Found " + getAvailableRaids().size() + " raids.");
+                            reload().whenComplete((config, exc) -> {
+                                if (exc != null) {
+                                    Throwable cause = exc instanceof CompletionException ? exc.getCause() : exc;
+                                    receiver.sendMessage("Config not reloaded, keeping the current one: " + cause.getMessage());
+                                } else {
+                                    receiver.sendMessage("Config reloaded. Found " + config.getRaids().size() + " raids.");
+                                }
+                            });
+                            break;
+                        case CMD_OPTIMIZE:
+                            if (args.size() >= 2) {
+                                String dungeonName = args.get(1);
+                                receiver.sendMessage("Optimizing dungeon " + dungeonName);
+                                optimizeDungeon(dungeonName).whenComplete((result, exc) -> reportOptimization(receiver, dungeonName, result, exc));
+                            } else {
+                                receiver.sendMessage("/raids optimize requires 1 argument");
+                            }
+                            break;
+                        case CMD_STATS:
+                            getStats().forEach(receiver::sendMessage);
+                            break;
+                        case CMD_MIGRATE:
+                            if (args.size() >= 3) {
+                                try {
+                                    LocationStoreType from = LocationStoreType.valueOf(args.get(1).toUpperCase());
+                                    LocationStoreType to = LocationStoreType.valueOf(args.get(2).toUpperCase());
+
+                                    receiver.sendMessage("Migrating return locations from " + args.get(1) + " to " + args.get(2));
+                                    migrateLocations(from, to).whenComplete((count, exc) -> {
+                                        if (exc != null) {
+                                            Throwable cause = exc instanceof CompletionException ? exc.getCause() : exc;
+                                            receiver.sendMessage("Unable to migrate return locations: " + cause.getMessage());
+                                            getLogger().log(Level.WARNING, "Unable to migrate return locations", cause);
+                                        } else {
+                                            receiver.sendMessage("Migrated " + count + " return locations");
+                                        }
+                                    });
+                                } catch (IllegalArgumentException e) {
+                                    receiver.sendMessage("Location stores are " + Arrays.toString(LocationStoreType.values()).toLowerCase());
+                                } catch (RaidsException e) {
+                                    receiver.sendMessage(e.getMessage());
+                                }
+                            } else {
+                                receiver.sendMessage("/raids migrate requires 2 arguments");
+                            }
                             break;
                         case CMD_HELP:
                             for (String help : getHelp(perms)) {
@@ -447,12 +1227,24 @@ public class RaidsManager {
                             if (args.size() >= 3) {
                                 String worldName = args.get(1);
                                 String dungeonName = args.get(2);
-                                boolean forceUpdate = (args.size() > 3 && args.get(3).equals("-f"));
+                                List<String> flags = args.subList(3, args.size());
+                                boolean forceUpdate = flags.contains("-f");
 
                                 try {
-                                    packageWorld(worldName, dungeonName, forceUpdate);
-                                    receiver.sendMessage("World " + worldName + " has been packaged as dungeon " + dungeonName);
-                                } catch (Exception e) {
+                                    packageWorld(worldName, dungeonName, forceUpdate).whenComplete((packaged, exc) -> {
+                                        if (exc != null) {
+                                            Throwable cause = exc instanceof CompletionException ? exc.getCause() : exc;
+                                            receiver.sendMessage(cause.getMessage());
+                                            getLogger().log(Level.WARNING, cause.getMessage(), cause);
+                                        } else {
+                                            receiver.sendMessage("World " + worldName + " has been packaged as dungeon " + dungeonName + ": " + packaged);
+
+                                            if (flags.contains("-o")) {
+                                                optimizeDungeon(dungeonName).whenComplete((result, e) -> reportOptimization(receiver, dungeonName, result, e));
+                                            }
+                                        }
+                                    });
+                                } catch (RaidsException e) {
                                     receiver.sendMessage(e.getMessage());
                                 }
                             } else {
@@ -485,16 +1277,7 @@ public class RaidsManager {
                                             receiver.sendMessage("All members of your party must have at least a level of " + raid.getJoinCriteria().getMinimumLevel());
                                         }
 
-                                        receiver.sendMessage("Creating raid dungeon");
-
-                                        try {
-                                            World w = setupRaidWorld(raid);
-                                            startRaid(partyId, w, raid);
-                                        } catch (IOException e) {
-                                            receiver.sendMessage("Error creating raid: " + e);
-                                            getLogger().throwing(RaidsPlugin.class.getName(), "onCommand", e);
-                                        }
-
+                                        requestRaid(new RaidAdmissionQueue.Ticket(partyId, raid, receiver));
                                     } else {
                                         receiver.sendMessage("Could not find raid raid");
                                     }
@@ -549,14 +1332,34 @@ public class RaidsManager {
         return false;
     }
 
+    public List<String> getStats() {
+        List<String> result = new ArrayList<>();
+
+        result.add("Pool hits: " + worldPool.getHits() + ", misses: " + worldPool.getMisses());
+        getRaidsConfig().getRaids().stream()
+                .filter(r -> r.getPoolSize() > 0)
+                .forEach(r -> result.add("Pool " + r.getName() + ": " + worldPool.getSize(r.getName()) + "/" + r.getPoolSize() + " ready"));
+        result.add(String.format("Scrubber queue: %d, unloads: %d, avg %.1f ms, max %.1f ms",
+                scrubber.getQueueDepth(), scrubber.getUnloads(), scrubber.getAverageUnloadMillis(), scrubber.getMaxUnloadMillis()));
+        getAvailableDungeons().stream()
+                .filter(d -> !managedWorlds.getByDungeon(d).isEmpty())
+                .forEach(d -> result.add("Dungeon " + d + ": " + managedWorlds.getByDungeon(d).size() + " instances"));
+        result.add("Worlds awaiting deletion: " + worldTrash.getPending());
+        result.add("Pending timers: " + timers.getSize());
+        result.add("Raids preparing: " + preparing.get() + ", waiting in line: " + admission.size());
+        Arrays.stream(RaidState.values())
+                .filter(s -> stateStats.getEntered(s) > 0)
+                .forEach(s -> result.add(String.format("Raids %s: %d now, %d total, avg %.1f s",
+                        s, stateStats.getCurrent(s), stateStats.getEntered(s), stateStats.getAverageSeconds(s))));
+
+        return result;
+    }
+
     private Raid getRaid(String name) {
-        return getRaidsConfig().getRaids().stream()
-                .filter(r -> r.getName().equals(name))
-                .findFirst()
-                .orElse(null);
+        return getRaidsConfig().getRaid(name);
     }
 
-    private World generateDungeon(String dungeonName) throws IOException {
+    private File extractDungeon(String dungeonName) throws IOException {
         String filename = dungeonName + ".zip";
 
         File dungeonFile = new File(getDungeonDirectory(), filename);
@@ -578,43 +1381,65 @@ public class RaidsManager {
                     os.write(buffer, 0, read);
                 }
             }
+
+            refreshDungeons();
         }
 
         String worldName = getRaidsConfig().getRaidWorldPrefix() + "_" + UUID.randomUUID().toString();
         File worldDir = new File(getServer().getWorldContainer(), worldName);
 
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(dungeonFile))) {
+        templateCache.setParallelism(getRaidsConfig().getExtractParallelism());
+        templateCache.instantiate(dungeonName, dungeonFile, worldDir);
 
-            ZipEntry entry;
+        return worldDir;
+    }
 
-            while ((entry = zis.getNextEntry()) != null) {
-                if (!entry.getName().endsWith("uid.dat") && !entry.getName().endsWith("session.lock")) {
-                    File file = new File(worldDir, entry.getName());
-                    if (entry.isDirectory()) {
-                        file.mkdirs();
-                    } else {
-                        file.getParentFile().mkdirs();
+    private World loadDungeonWorld(File worldDir) {
+        WorldCreator creator = new WorldCreator(worldDir.getName());
+        return EntityFactory.getInstance().getServer().createWorld(creator);
+    }
 
-                        try (FileOutputStream fos = new FileOutputStream(file)) {
-                            byte[] buffer = new byte[1024];
-                            int read;
+    private World generateDungeon(String dungeonName) throws IOException {
+        return loadDungeonWorld(extractDungeon(dungeonName));
+    }
 
-                            while ((read = zis.read(buffer)) > 0) {
-                                fos.write(buffer, 0, read);
-                            }
-                        }
-                    }
-                }
-                zis.closeEntry();
+    private <T> CompletableFuture<T> callOnMainThread(Callable<T> callable) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        getServer().runTask(() -> {
+            try {
+                result.complete(callable.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
             }
-        }
+        });
 
-        WorldCreator creator = new WorldCreator(worldName);
-        return EntityFactory.getInstance().getServer().createWorld(creator);
+        return result;
     }
 
-    private World setupRaidWorld(Raid raid) throws IOException {
-        World world = generateDungeon(raid.getDungeonName());
+    /**
+     * Prepares a world for the raid. The dungeon is extracted on the I/O executor and
+     * only world creation and setup hop back to the main thread.
+     */
+    public CompletableFuture<World> prepareRaidWorld(Raid raid) {
+        long start = System.currentTimeMillis();
+
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    try {
+                        return extractDungeon(raid.getDungeonName());
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, ioExecutor)
+                .thenCompose(worldDir -> callOnMainThread(() -> {
+                    World world = setupRaidWorld(loadDungeonWorld(worldDir), raid);
+                    getLogger().info(MessageFormat.format("{0}: Prepared in {1} ms", world.getName(), System.currentTimeMillis() - start));
+                    return world;
+                }));
+    }
+
+    private World setupRaidWorld(World world, Raid raid) {
         getLogger().info(MessageFormat.format("{0}: Generated", world.getName()));
 
         // Set Spawn Location
@@ -658,11 +1483,38 @@ public class RaidsManager {
     }
 
     public List<String> getAvailableDungeons() {
-        return Arrays.stream(Objects.requireNonNull(getDungeonDirectory().listFiles()))
+        return dungeonCatalog;
+    }
+
+    /**
+     * Rebuilds the dungeon catalog from the dungeon directory. Runs at startup, after a
+     * dungeon is written and whenever the watcher sees a zip change.
+     */
+    private void refreshDungeons() {
+        long start = System.currentTimeMillis();
+        File[] files = getDungeonDirectory().listFiles();
+
+        if (files == null) {
+            getLogger().warning("Unable to list dungeon directory, keeping the current dungeons");
+            return;
+        }
+
+        List<String> previous = dungeonCatalog;
+        List<String> catalog = Collections.unmodifiableList(Arrays.stream(files)
                 .map(File::getName)
                 .filter(n -> n.endsWith(".zip"))
                 .map(n -> n.substring(0, n.lastIndexOf(".")))
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+
+        dungeonCatalog = catalog;
+
+        previous.stream()
+                .filter(d -> !catalog.contains(d))
+                .forEach(d -> getRaidsConfig().getRaidsByDungeon(d).forEach(r ->
+                        getLogger().warning(MessageFormat.format("Dungeon {0} was removed but raid {1} still uses it", d, r.getName()))));
+
+        getLogger().info(MessageFormat.format("Dungeon list refreshed in {0} ms, {1} dungeons",
+                String.valueOf(System.currentTimeMillis() - start), String.valueOf(catalog.size())));
     }
 
     private File getDungeonDirectory() {
@@ -692,7 +1544,7 @@ public class RaidsManager {
         }
     }
 
-    private void loadDefaults() throws IOException, InvalidConfigurationException {
+    private void loadDefaults() {
         File configFile = new File(getDataDirectory(), CONFIG_NAME);
 
         if (!configFile.exists()) {
@@ -703,19 +1555,11 @@ public class RaidsManager {
             } catch (IOException e) {
                 getLogger().warning("Unable to load defaults: " + e);
             }
-
-            YamlConfiguration yamlConfig = new YamlConfiguration();
-            yamlConfig.load(configFile);
-
-            raidsConfig = RaidsConfig.from(yamlConfig);
         }
     }
 
     public ManagedWorld getManagedWorld(String name) {
-        return managedWorlds.stream()
-                .filter(w -> w.getName().equals(name))
-                .findFirst()
-                .orElse(null);
+        return managedWorlds.getByName(name);
     }
 
     class StartRaidRunnable implements Runnable {
@@ -730,7 +1574,7 @@ public class RaidsManager {
         @Override
         public void run() {
             RaidManagedWorld world = getRaidByParty(partyId);
-            if (world != null) {
+            if (world != null && world.transition(RaidState.QUEUED, RaidState.STARTING)) {
                 getLogger().info("Sending party " + world.getParty().getName() + " to " + world.getName());
 
                 world.getParty().getMembers().stream()
@@ -738,8 +1582,13 @@ public class RaidsManager {
                         .forEach(p -> {
                             storeLastLocation(p);
                             p.teleport(world.getWorld().getSpawnLocation());
+                            updateOccupancy(p.getUniqueId(), world.getName());
                         });
-                world.setState(RaidManagedWorld.STATE_STARTED);
+                world.transition(RaidState.STARTING, RaidState.RUNNING);
+
+                if (world.getRaid().getMaxDuration() > 0) {
+                    world.setTimer(TIMER_DURATION, timers.schedule(world.getRaid().getMaxDuration() * 20L, () -> endRaid(world)));
+                }
             }
         }
     }
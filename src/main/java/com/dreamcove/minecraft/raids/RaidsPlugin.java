@@ -9,6 +9,7 @@ import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -77,10 +78,17 @@ public class RaidsPlugin extends JavaPlugin implements Listener {
     @EventHandler
     public void OnPlayerJoin(PlayerJoinEvent joinEvent) {
         manager.returnLastLocation(joinEvent.getPlayer().getUniqueId());
+        manager.updateOccupancy(joinEvent.getPlayer().getUniqueId(), joinEvent.getPlayer().getWorld().getName());
     }
 
     @EventHandler
     public void OnPlayerQuit(PlayerQuitEvent quitEvent) {
         manager.returnLastLocation(quitEvent.getPlayer().getUniqueId());
+        manager.updateOccupancy(quitEvent.getPlayer().getUniqueId(), null);
+    }
+
+    @EventHandler
+    public void OnPlayerChangedWorld(PlayerChangedWorldEvent changedWorldEvent) {
+        manager.updateOccupancy(changedWorldEvent.getPlayer().getUniqueId(), changedWorldEvent.getPlayer().getWorld().getName());
     }
 }
\ No newline at end of file
@@ -0,0 +1,344 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.api.WorldLocation;
+import com.dreamcove.minecraft.raids.config.Point;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * SqliteLocationStore keeps return locations in an embedded SQLite database, using the JDBC
+ * driver that ships with the server, so nothing but the rows being read is held in memory.
+ * <p>
+ * Changes are queued and written by a background thread as batched, prepared upserts and
+ * deletes in one transaction; reads see queued changes before they reach the database. Reads
+ * use their own connection, so with WAL they never wait for the writer to commit. A failed
+ * batch stays queued and is retried with a growing delay.
+ */
+public class SqliteLocationStore implements LocationStore {
+    private static final int BATCH_SIZE = 500;
+    private static final long MIN_RETRY_DELAY = 500;
+    private static final long MAX_RETRY_DELAY = 30000;
+    private static final long CLOSE_TIMEOUT = 5000;
+    private static final WorldLocation REMOVED = new WorldLocation((String) null, null, 0, 0);
+
+    private final Connection readConnection;
+    private final Connection writeConnection;
+    private final Map<UUID, Change> pending = new LinkedHashMap<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Every change up to this sequence number is in the database
+    private long written;
+    private long queued;
+    private IOException lastFailure;
+
+    public SqliteLocationStore(File databaseFile) throws IOException {
+        try {
+            // Plugin class loaders hide the driver from DriverManager's service lookup
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new IOException("SQLite JDBC driver is not available on this server", e);
+        }
+
+        databaseFile.getParentFile().mkdirs();
+        String url = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
+        Connection write = null;
+
+        try {
+            write = DriverManager.getConnection(url);
+
+            try (Statement statement = write.createStatement()) {
+                statement.execute("PRAGMA journal_mode=WAL");
+                statement.execute("CREATE TABLE IF NOT EXISTS return_locations ("
+                        + "player_id TEXT PRIMARY KEY, "
+                        + "world TEXT NOT NULL, "
+                        + "x REAL NOT NULL, y REAL NOT NULL, z REAL NOT NULL, "
+                        + "yaw REAL NOT NULL, pitch REAL NOT NULL)");
+            }
+
+            writeConnection = write;
+            readConnection = DriverManager.getConnection(url);
+        } catch (SQLException e) {
+            closeQuietly(write);
+            throw new IOException("Unable to open " + databaseFile.getName(), e);
+        }
+
+        writer = new Thread(this::writeLoop, "PartyRaids-Locations-SQL");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(SqliteLocationStore.class.getName());
+    }
+
+    @Override
+    public WorldLocation get(UUID player) throws IOException {
+        synchronized (pending) {
+            Change change = pending.get(player);
+
+            if (change != null) {
+                return change.location == REMOVED ? null : change.location;
+            }
+        }
+
+        synchronized (readConnection) {
+            try (PreparedStatement select = readConnection.prepareStatement(
+                    "SELECT world, x, y, z, yaw, pitch FROM return_locations WHERE player_id = ?")) {
+                select.setString(1, player.toString());
+
+                try (ResultSet rs = select.executeQuery()) {
+                    return rs.next() ? read(rs, 1) : null;
+                }
+            } catch (SQLException e) {
+                throw new IOException("Unable to read location of " + player, e);
+            }
+        }
+    }
+
+    private static WorldLocation read(ResultSet rs, int column) throws SQLException {
+        return new WorldLocation(
+                rs.getString(column),
+                new Point(rs.getDouble(column + 1), rs.getDouble(column + 2), rs.getDouble(column + 3)),
+                rs.getFloat(column + 4),
+                rs.getFloat(column + 5));
+    }
+
+    @Override
+    public void put(UUID player, WorldLocation location) {
+        enqueue(player, location);
+    }
+
+    @Override
+    public WorldLocation remove(UUID player) throws IOException {
+        WorldLocation result = get(player);
+
+        if (result != null) {
+            enqueue(player, REMOVED);
+        }
+
+        return result;
+    }
+
+    private void enqueue(UUID player, WorldLocation location) {
+        synchronized (pending) {
+            // A newer change for the same player replaces the queued one and moves to the back
+            pending.remove(player);
+            pending.put(player, new Change(location, ++queued));
+            pending.notifyAll();
+        }
+    }
+
+    private void writeLoop() {
+        long retryDelay = MIN_RETRY_DELAY;
+
+        while (running) {
+            Map<UUID, Change> batch = new LinkedHashMap<>();
+
+            synchronized (pending) {
+                while (running && pending.isEmpty()) {
+                    try {
+                        pending.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+
+                for (Map.Entry<UUID, Change> entry : pending.entrySet()) {
+                    batch.put(entry.getKey(), entry.getValue());
+                    if (batch.size() == BATCH_SIZE) {
+                        break;
+                    }
+                }
+            }
+
+            try {
+                write(batch);
+            } catch (SQLException e) {
+                getLogger().log(Level.WARNING, "Unable to write return locations, retrying in " + retryDelay + " ms", e);
+
+                synchronized (pending) {
+                    lastFailure = new IOException("Unable to write return locations", e);
+                    pending.notifyAll();
+                }
+
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException exc) {
+                    return;
+                }
+
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY);
+                continue;
+            }
+
+            retryDelay = MIN_RETRY_DELAY;
+
+            synchronized (pending) {
+                // Keep changes that were replaced while the batch was written, they still need writing
+                batch.forEach((player, change) -> pending.remove(player, change));
+                lastFailure = null;
+
+                // Pending changes are in sequence order, so everything before the first one is written
+                written = pending.isEmpty() ? queued : pending.values().iterator().next().sequence - 1;
+                pending.notifyAll();
+            }
+        }
+    }
+
+    private void write(Map<UUID, Change> batch) throws SQLException {
+        writeConnection.setAutoCommit(false);
+
+        try (PreparedStatement upsert = writeConnection.prepareStatement(
+                "INSERT INTO return_locations (player_id, world, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?) "
+                        + "ON CONFLICT(player_id) DO UPDATE SET world = excluded.world, x = excluded.x, y = excluded.y, "
+                        + "z = excluded.z, yaw = excluded.yaw, pitch = excluded.pitch");
+             PreparedStatement delete = writeConnection.prepareStatement("DELETE FROM return_locations WHERE player_id = ?")) {
+
+            for (Map.Entry<UUID, Change> entry : batch.entrySet()) {
+                WorldLocation location = entry.getValue().location;
+
+                if (location == REMOVED) {
+                    delete.setString(1, entry.getKey().toString());
+                    delete.addBatch();
+                } else {
+                    upsert.setString(1, entry.getKey().toString());
+                    upsert.setString(2, location.getWorldName());
+                    upsert.setDouble(3, location.getPoint().getX());
+                    upsert.setDouble(4, location.getPoint().getY());
+                    upsert.setDouble(5, location.getPoint().getZ());
+                    upsert.setFloat(6, location.getYaw());
+                    upsert.setFloat(7, location.getPitch());
+                    upsert.addBatch();
+                }
+            }
+
+            upsert.executeBatch();
+            delete.executeBatch();
+            writeConnection.commit();
+        } catch (SQLException e) {
+            writeConnection.rollback();
+            throw e;
+        } finally {
+            writeConnection.setAutoCommit(true);
+        }
+    }
+
+    @Override
+    public int size() throws IOException {
+        flush();
+
+        synchronized (readConnection) {
+            try (Statement statement = readConnection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM return_locations")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            } catch (SQLException e) {
+                throw new IOException("Unable to count return locations", e);
+            }
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<UUID, WorldLocation> action) throws IOException {
+        flush();
+
+        List<Map.Entry<UUID, WorldLocation>> rows = new ArrayList<>();
+
+        synchronized (readConnection) {
+            try (Statement statement = readConnection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT player_id, world, x, y, z, yaw, pitch FROM return_locations")) {
+                while (rs.next()) {
+                    rows.add(new AbstractMap.SimpleImmutableEntry<>(UUID.fromString(rs.getString(1)), read(rs, 2)));
+                }
+            } catch (SQLException e) {
+                throw new IOException("Unable to read return locations", e);
+            }
+        }
+
+        rows.forEach(row -> action.accept(row.getKey(), row.getValue()));
+    }
+
+    /**
+     * Waits until everything queued so far has been written. Fails rather than waits while
+     * the database refuses writes; the changes stay queued and are retried.
+     */
+    @Override
+    public void flush() throws IOException {
+        synchronized (pending) {
+            long target = queued;
+
+            while (written < target) {
+                if (lastFailure != null) {
+                    throw lastFailure;
+                }
+                if (!writer.isAlive()) {
+                    throw new IOException("Location writer has stopped");
+                }
+
+                try {
+                    pending.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while writing return locations", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            running = false;
+            writer.interrupt();
+
+            try {
+                writer.join(CLOSE_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            synchronized (pending) {
+                if (!pending.isEmpty()) {
+                    getLogger().severe("Lost " + pending.size() + " return location changes that could not be written");
+                }
+            }
+
+            closeQuietly(writeConnection);
+            synchronized (readConnection) {
+                closeQuietly(readConnection);
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                getLogger().log(Level.WARNING, "Unable to close location database", e);
+            }
+        }
+    }
+
+    private static class Change {
+        private final WorldLocation location;
+        private final long sequence;
+
+        private Change(WorldLocation location, long sequence) {
+            this.location = location;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.dreamcove.minecraft.raids;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * WorldScrubber queues unused raid worlds for unloading so the scrubber can spread the
+ * work over several ticks, and keeps timings of the unloads it has done.
+ */
+public class WorldScrubber {
+    private final Set<String> queue = new LinkedHashSet<>();
+    private long unloads;
+    private long unloadNanos;
+    private long maxUnloadNanos;
+
+    public synchronized boolean offer(String worldName) {
+        return queue.add(worldName);
+    }
+
+    public synchronized String poll() {
+        Iterator<String> it = queue.iterator();
+
+        if (!it.hasNext()) {
+            return null;
+        }
+
+        String result = it.next();
+        it.remove();
+
+        return result;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized void recordUnload(long nanos) {
+        unloads++;
+        unloadNanos += nanos;
+        maxUnloadNanos = Math.max(maxUnloadNanos, nanos);
+    }
+
+    public synchronized long getUnloads() {
+        return unloads;
+    }
+
+    public synchronized double getAverageUnloadMillis() {
+        return unloads == 0 ? 0 : unloadNanos / 1000000.0 / unloads;
+    }
+
+    public synchronized double getMaxUnloadMillis() {
+        return maxUnloadNanos / 1000000.0;
+    }
+}
@@ -0,0 +1,174 @@
+package com.dreamcove.minecraft.raids;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.MessageFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * WorldTrash removes world folders without blocking the caller. A folder is renamed into the
+ * trash directory, which is a cheap metadata operation on the same file system, and a single
+ * background thread deletes its contents at a limited rate so disk I/O stays smooth.
+ */
+public class WorldTrash {
+    private final File trashDirectory;
+    private final ExecutorService deleter;
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile long bytesPerSecond;
+
+    public WorldTrash(File trashDirectory) {
+        this.trashDirectory = trashDirectory;
+        this.deleter = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "PartyRaids-Trash");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(WorldTrash.class.getName());
+    }
+
+    /**
+     * Limits the background deletion rate, 0 deletes as fast as possible.
+     */
+    public void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public void trash(File folder) throws IOException {
+        if (!folder.exists()) {
+            return;
+        }
+
+        trashDirectory.mkdirs();
+        File target = new File(trashDirectory, folder.getName() + "-" + System.nanoTime());
+
+        try {
+            Files.move(folder.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // The trash is on another file system, so a move would be a full copy
+            getLogger().warning("Unable to move " + folder.getName() + " to trash, deleting it in place");
+            target = folder;
+        }
+
+        schedule(target);
+    }
+
+    /**
+     * Schedules whatever was left in the trash when the server last stopped.
+     */
+    public void resume() {
+        File[] leftovers = trashDirectory.listFiles();
+
+        if (leftovers != null && leftovers.length > 0) {
+            getLogger().info(MessageFormat.format("Resuming deletion of {0} trashed worlds", leftovers.length));
+
+            for (File f : leftovers) {
+                schedule(f);
+            }
+        }
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Stops the deleter; anything not yet deleted is picked up by {@link #resume()}.
+     */
+    public void shutdown() {
+        deleter.shutdownNow();
+
+        try {
+            deleter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void schedule(File folder) {
+        pending.incrementAndGet();
+
+        try {
+            deleter.execute(() -> {
+                try {
+                    long start = System.currentTimeMillis();
+                    long deleted = delete(folder.toPath());
+                    getLogger().info(MessageFormat.format("Deleted {0} ({1} KB in {2} ms)",
+                            folder.getName(), String.valueOf(deleted / 1024), System.currentTimeMillis() - start));
+                } catch (InterruptedIOException e) {
+                    // Shutting down, the rest is resumed on the next start
+                } catch (IOException e) {
+                    getLogger().log(Level.WARNING, "Unable to delete " + folder.getName(), e);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Stopped, the folder is picked up again by the next resume
+            pending.decrementAndGet();
+        }
+    }
+
+    private long delete(Path root) throws IOException {
+        final long start = System.currentTimeMillis();
+        final long[] deleted = {0};
+
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    deleted[0] += attrs.size();
+                    throttle(start, deleted[0]);
+
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    if (exc != null) {
+                        throw exc;
+                    }
+
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (NoSuchFileException e) {
+            // Already gone
+        }
+
+        return deleted[0];
+    }
+
+    private void throttle(long start, long deleted) throws InterruptedIOException {
+        long rate = bytesPerSecond;
+        long wait = rate > 0 ? deleted * 1000 / rate - (System.currentTimeMillis() - start) : 0;
+
+        try {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Deletion interrupted");
+            } else if (wait > 0) {
+                Thread.sleep(wait);
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Deletion interrupted");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.api.WorldLocation;
+import com.dreamcove.minecraft.raids.utils.FileUtilities;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * YamlLocationStore keeps every location in memory and rewrites the whole YAML file on flush.
+ * Fine for small servers, and the format earlier versions used.
+ */
+public class YamlLocationStore implements LocationStore {
+    private final File locationFile;
+    private final Map<UUID, WorldLocation> locations = new LinkedHashMap<>();
+    private boolean dirty;
+
+    public YamlLocationStore(File locationFile) throws IOException {
+        this.locationFile = locationFile;
+
+        if (locationFile.exists()) {
+            try {
+                load();
+            } catch (InvalidConfigurationException e) {
+                throw new IOException("Unable to read " + locationFile.getName(), e);
+            }
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(YamlLocationStore.class.getName());
+    }
+
+    private void load() throws IOException, InvalidConfigurationException {
+        YamlConfiguration configFile = new YamlConfiguration();
+
+        configFile.load(locationFile);
+
+        ConfigurationSection section = configFile.getConfigurationSection("locations");
+
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                String location = section.getString(key);
+
+                if (location != null) {
+                    try {
+                        locations.put(UUID.fromString(key), WorldLocation.parse(location));
+                    } catch (ParseException | IllegalArgumentException e) {
+                        getLogger().log(Level.WARNING, "Error loading player " + key, e);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized WorldLocation get(UUID player) {
+        return locations.get(player);
+    }
+
+    @Override
+    public synchronized void put(UUID player, WorldLocation location) {
+        locations.put(player, location);
+        dirty = true;
+    }
+
+    @Override
+    public synchronized WorldLocation remove(UUID player) {
+        WorldLocation result = locations.remove(player);
+        dirty |= result != null;
+
+        return result;
+    }
+
+    @Override
+    public synchronized int size() {
+        return locations.size();
+    }
+
+    @Override
+    public synchronized void forEach(BiConsumer<UUID, WorldLocation> action) {
+        locations.forEach(action);
+    }
+
+    /**
+     * Writes the file next to the old one and renames it over, so a crash never leaves a
+     * partly written file behind.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (!dirty) {
+            return;
+        }
+
+        YamlConfiguration config = new YamlConfiguration();
+        locations.forEach((k, v) -> config.set("locations." + k.toString(), v.toString()));
+
+        File tmpFile = new File(locationFile.getParentFile(), locationFile.getName() + ".tmp");
+        config.save(tmpFile);
+        FileUtilities.replace(tmpFile, locationFile);
+
+        dirty = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
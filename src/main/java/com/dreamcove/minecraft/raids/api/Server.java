@@ -23,5 +23,11 @@ public interface Server {
 
     void delayRunnable(Runnable runnable, long ticks);
 
+    int repeatRunnable(Runnable runnable, long delay, long period);
+
+    void cancelTask(int taskId);
+
+    void runTask(Runnable runnable);
+
     void dispatchCommand(String command);
 }
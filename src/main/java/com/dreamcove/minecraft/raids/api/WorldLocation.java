@@ -1,34 +1,58 @@
 package com.dreamcove.minecraft.raids.api;
 
-import com.dreamcove.minecraft.raids.RaidsException;
 import com.dreamcove.minecraft.raids.config.Point;
 
 import java.text.ParseException;
 
+/**
+ * A point in a world. The world may be given by name only, in which case it is looked up
+ * when first needed, so locations of worlds that are not loaded yet are kept.
+ */
 public class WorldLocation {
 
     private final Point point;
-    private final World world;
+    private final String worldName;
+    private final float yaw;
+    private final float pitch;
+    private volatile World world;
 
     public WorldLocation(World world, Point point) {
+        this(world, point, 0, 0);
+    }
+
+    public WorldLocation(World world, Point point, float yaw, float pitch) {
+        this(world == null ? null : world.getName(), point, yaw, pitch);
         this.world = world;
+    }
+
+    public WorldLocation(String worldName, Point point, float yaw, float pitch) {
+        this.worldName = worldName;
         this.point = point;
+        this.yaw = yaw;
+        this.pitch = pitch;
     }
 
-    public static WorldLocation parse(String string) throws ParseException, RaidsException {
+    public static WorldLocation parse(String string) throws ParseException {
         String[] parts = string.split(":");
 
-        if (parts.length == 2) {
+        if (parts.length == 2 || parts.length == 3) {
             String worldName = parts[0];
             Point point = Point.parse(parts[1]);
-
-            World world = EntityFactory.getInstance().getServer().getWorld(worldName);
-
-            if (world == null) {
-                throw new RaidsException("World " + worldName + " does not exist");
+            float yaw = 0;
+            float pitch = 0;
+
+            if (parts.length == 3) {
+                String[] angles = parts[2].split(",");
+
+                try {
+                    yaw = Float.parseFloat(angles[0].trim());
+                    pitch = Float.parseFloat(angles[1].trim());
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    throw new ParseException("wrong format for WorldLocation direction", 0);
+                }
             }
 
-            return new WorldLocation(world, point);
+            return new WorldLocation(worldName, point, yaw, pitch);
         }
 
         throw new ParseException("wrong format for WorldLocation", 0);
@@ -50,14 +74,35 @@ public class WorldLocation {
 
     @Override
     public String toString() {
-        return getWorld().getName() + ":" + point.toString();
+        String result = worldName + ":" + point.toString();
+
+        return yaw == 0 && pitch == 0 ? result : result + ":" + yaw + "," + pitch;
     }
 
+    /**
+     * Returns the world, or null when no world of that name is loaded.
+     */
     public World getWorld() {
+        if (world == null && worldName != null) {
+            world = EntityFactory.getInstance().getServer().getWorld(worldName);
+        }
+
         return world;
     }
 
+    public String getWorldName() {
+        return worldName;
+    }
+
     public Point getPoint() {
         return point;
     }
+
+    public float getYaw() {
+        return yaw;
+    }
+
+    public float getPitch() {
+        return pitch;
+    }
 }
@@ -0,0 +1,23 @@
+package com.dreamcove.minecraft.raids.config;
+
+public class Bounds {
+    private final Point min;
+    private final Point max;
+
+    public Bounds(Point min, Point max) {
+        this.min = new Point(Math.min(min.getX(), max.getX()), Math.min(min.getY(), max.getY()), Math.min(min.getZ(), max.getZ()));
+        this.max = new Point(Math.max(min.getX(), max.getX()), Math.max(min.getY(), max.getY()), Math.max(min.getZ(), max.getZ()));
+    }
+
+    public Point getMin() {
+        return min;
+    }
+
+    public Point getMax() {
+        return max;
+    }
+
+    public boolean intersects(double minX, double minZ, double maxX, double maxZ) {
+        return minX <= max.getX() && maxX >= min.getX() && minZ <= max.getZ() && maxZ >= min.getZ();
+    }
+}
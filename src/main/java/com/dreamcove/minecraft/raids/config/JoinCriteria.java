@@ -8,7 +8,7 @@ public class JoinCriteria {
         return minimumPartySize;
     }
 
-    public void setMinimumPartySize(int minimumPartySize) {
+    void setMinimumPartySize(int minimumPartySize) {
         this.minimumPartySize = minimumPartySize;
     }
 
@@ -16,7 +16,7 @@ public class JoinCriteria {
         return minimumLevel;
     }
 
-    public void setMinimumLevel(int minimumLevel) {
+    void setMinimumLevel(int minimumLevel) {
         this.minimumLevel = minimumLevel;
     }
 }
@@ -0,0 +1,20 @@
+package com.dreamcove.minecraft.raids.config;
+
+public enum LocationStoreType {
+    /**
+     * Memory-mapped file of fixed-width records.
+     */
+    BINARY,
+    /**
+     * Plain YAML file, kept in memory and rewritten on flush.
+     */
+    YAML,
+    /**
+     * Snapshot plus an append-only journal, kept in memory and compacted when the journal grows.
+     */
+    JOURNAL,
+    /**
+     * Embedded SQLite database, using the driver bundled with the server.
+     */
+    SQLITE
+}
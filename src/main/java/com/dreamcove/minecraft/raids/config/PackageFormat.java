@@ -0,0 +1,13 @@
+package com.dreamcove.minecraft.raids.config;
+
+public enum PackageFormat {
+    /**
+     * Every entry is deflated.
+     */
+    DEFLATE,
+    /**
+     * Entries that are already compressed (region and gzip'd data files) are stored as-is,
+     * everything else is deflated.
+     */
+    MIXED
+}
@@ -3,17 +3,25 @@ package com.dreamcove.minecraft.raids.config;
 public class Raid {
     private final JoinCriteria joinCriteria = new JoinCriteria();
     private final RaidSetup onStartup = new RaidSetup();
-    private String name;
-    private String dungeonName;
+    private final String name;
+    private final String dungeonName;
     private Point spawnLocation = new Point(0, 0, 0);
     private int joinIn = 15;
+    private int poolSize;
+    private boolean recycle;
+    private int maxDuration;
     private String difficulty;
 
+    public Raid(String name, String dungeonName) {
+        this.name = name;
+        this.dungeonName = dungeonName;
+    }
+
     public String getDifficulty() {
         return difficulty;
     }
 
-    public void setDifficulty(String difficulty) {
+    void setDifficulty(String difficulty) {
         this.difficulty = difficulty;
     }
 
@@ -21,23 +29,15 @@ public class Raid {
         return name;
     }
 
-    public void setName(String name) {
-        this.name = name;
-    }
-
     public String getDungeonName() {
         return dungeonName;
     }
 
-    public void setDungeonName(String dungeonName) {
-        this.dungeonName = dungeonName;
-    }
-
     public Point getSpawnLocation() {
         return spawnLocation;
     }
 
-    public void setSpawnLocation(Point spawnLocation) {
+    void setSpawnLocation(Point spawnLocation) {
         this.spawnLocation = spawnLocation;
     }
 
@@ -49,10 +49,34 @@ public class Raid {
         return joinIn;
     }
 
-    public void setJoinIn(int joinIn) {
+    void setJoinIn(int joinIn) {
         this.joinIn = joinIn;
     }
 
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public int getMaxDuration() {
+        return maxDuration;
+    }
+
+    void setMaxDuration(int maxDuration) {
+        this.maxDuration = maxDuration;
+    }
+
+    public boolean isRecycle() {
+        return recycle;
+    }
+
+    void setRecycle(boolean recycle) {
+        this.recycle = recycle;
+    }
+
     public RaidSetup getOnStartup() {
         return onStartup;
     }
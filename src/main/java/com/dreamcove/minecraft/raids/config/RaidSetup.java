@@ -5,31 +5,31 @@ import java.util.Collections;
 import java.util.List;
 
 public class RaidSetup {
-    private final List<String> commands = Collections.synchronizedList(new ArrayList<>());
-    private final List<Mob> mobs = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> commands = new ArrayList<>();
+    private final List<Mob> mobs = new ArrayList<>();
     private boolean clearMobs;
 
     public boolean isClearMobs() {
         return clearMobs;
     }
 
-    public void setClearMobs(boolean clearMobs) {
+    void setClearMobs(boolean clearMobs) {
         this.clearMobs = clearMobs;
     }
 
     public List<String> getCommands() {
-        return commands;
+        return Collections.unmodifiableList(commands);
     }
 
-    public void addCommand(String command) {
+    void addCommand(String command) {
         commands.add(command);
     }
 
     public List<Mob> getMobs() {
-        return mobs;
+        return Collections.unmodifiableList(mobs);
     }
 
-    public void addMob(Mob mob) {
+    void addMob(Mob mob) {
         mobs.add(mob);
     }
 }
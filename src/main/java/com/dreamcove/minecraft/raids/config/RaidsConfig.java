@@ -4,23 +4,88 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 
 import java.text.MessageFormat;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * RaidsConfig is a snapshot of config.yml. Its collections are only filled while it is
+ * parsed and are read-only afterwards, so a published snapshot can be read without locking;
+ * a reload parses a new snapshot instead of changing this one. Only the parser in this
+ * package sets values, so nothing can change a snapshot in use.
+ */
 public class RaidsConfig {
-    private final List<Raid> raids = Collections.synchronizedList(new ArrayList<>());
+    private final List<Raid> raids = new ArrayList<>();
+    private final Map<String, Raid> raidsByName = new HashMap<>();
+    private final Map<String, List<Raid>> raidsByDungeon = new HashMap<>();
     private int cleanCycle = 15;
+    private int cleanMaxUnloads = 2;
+    private int cleanMaxMillis = 25;
+    private int expiryGrace = 10;
+    private int maxInstances = 0;
+    private int maxPreparing = 2;
     private String raidWorldPrefix = "partyraids";
+    private String fallbackWorld = "";
+    private int poolRefillInterval = 5;
+    private int extractParallelism = Runtime.getRuntime().availableProcessors();
+    private int packageParallelism = Runtime.getRuntime().availableProcessors();
+    private PackageFormat packageFormat = PackageFormat.MIXED;
+    private LocationStoreType locationStore = LocationStoreType.BINARY;
+    private int trashDeleteRate = 0;
+    private boolean autoReload = true;
+    private int reloadDebounce = 1000;
+    private final List<String> optimizerExcludes = new ArrayList<>();
+    private final Map<String, Bounds> dungeonBounds = new HashMap<>();
 
     public static RaidsConfig from(FileConfiguration fileConfig) {
         RaidsConfig result = new RaidsConfig();
 
         result.setCleanCycle(fileConfig.getInt("clean-cycle", 15));
+        result.setCleanMaxUnloads(Math.max(1, fileConfig.getInt("clean-max-unloads", 2)));
+        result.setCleanMaxMillis(Math.max(1, fileConfig.getInt("clean-max-millis", 25)));
+        result.setExpiryGrace(Math.max(0, fileConfig.getInt("expiry-grace", 10)));
+        result.setMaxInstances(Math.max(0, fileConfig.getInt("max-instances", 0)));
+        result.setMaxPreparing(Math.max(0, fileConfig.getInt("max-preparing", 2)));
         result.setRaidWorldPrefix(fileConfig.getString("raid-world-prefix", "partyraids"));
+        result.setFallbackWorld(fileConfig.getString("fallback-world", ""));
+        result.setPoolRefillInterval(fileConfig.getInt("pool-refill-interval", 5));
+        result.setTrashDeleteRate(fileConfig.getInt("trash-delete-rate", 0));
+        result.setAutoReload(fileConfig.getBoolean("auto-reload", true));
+        result.setReloadDebounce(Math.max(0, fileConfig.getInt("reload-debounce", 1000)));
+        result.setPackageFormat(PackageFormat.valueOf(fileConfig.getString("package-format", "mixed").toUpperCase()));
+        result.setLocationStore(LocationStoreType.valueOf(fileConfig.getString("location-store", "binary").toUpperCase()));
+        int parallelism = fileConfig.getInt("extract-parallelism", 0);
+        if (parallelism > 0) {
+            result.setExtractParallelism(parallelism);
+        }
+        parallelism = fileConfig.getInt("package-parallelism", 0);
+        if (parallelism > 0) {
+            result.setPackageParallelism(parallelism);
+        }
+
+        ConfigurationSection optimizerSection = fileConfig.getConfigurationSection("optimizer");
+        if (optimizerSection != null) {
+            result.optimizerExcludes.addAll(optimizerSection.getStringList("exclude"));
+
+            ConfigurationSection boundsSection = optimizerSection.getConfigurationSection("bounds");
+            if (boundsSection != null) {
+                for (String dungeonName : boundsSection.getKeys(false)) {
+                    try {
+                        ConfigurationSection dungeonSection = Objects.requireNonNull(boundsSection.getConfigurationSection(dungeonName));
+
+                        result.dungeonBounds.put(dungeonName, new Bounds(
+                                Point.parse(Objects.requireNonNull(dungeonSection.getString("min"))),
+                                Point.parse(Objects.requireNonNull(dungeonSection.getString("max")))));
+                    } catch (Exception e) {
+                        Logger.getLogger(RaidsConfig.class.getName())
+                                .log(
+                                        Level.SEVERE,
+                                        MessageFormat.format("Unable to load bounds for dungeon {0}", dungeonName),
+                                        e);
+                    }
+                }
+            }
+        }
 
         ConfigurationSection section = fileConfig.getConfigurationSection("raids");
 
@@ -29,13 +94,14 @@ public class RaidsConfig {
             try {
                 ConfigurationSection raidSection = section.getConfigurationSection(raidName);
 
-                Raid raid = new Raid();
-
-                raid.setName(raidName);
                 assert raidSection != null;
-                raid.setDungeonName(raidSection.getString("dungeon", "arena"));
+                Raid raid = new Raid(raidName, raidSection.getString("dungeon", "arena"));
+
                 raid.setDifficulty(raidSection.getString("difficulty", "normal"));
                 raid.setJoinIn(raidSection.getInt("join-in", 15));
+                raid.setPoolSize(raidSection.getInt("pool-size", 0));
+                raid.setRecycle(raidSection.getBoolean("recycle", false));
+                raid.setMaxDuration(raidSection.getInt("max-duration", 0));
                 raid.setSpawnLocation(Point.parse(Objects.requireNonNull(raidSection.getString("spawn-location", "0, 0, 0"))));
 
                 if (raidSection.getKeys(false).contains("on-startup")) {
@@ -82,15 +148,34 @@ public class RaidsConfig {
         return result;
     }
 
-    public void addRaid(Raid raid) {
-        raids.add(raid);
+    private void addRaid(Raid raid) {
+        if (raidsByName.putIfAbsent(raid.getName(), raid) == null) {
+            raids.add(raid);
+            raidsByDungeon.computeIfAbsent(raid.getDungeonName(), k -> new ArrayList<>()).add(raid);
+        }
+    }
+
+    public Raid getRaid(String name) {
+        return raidsByName.get(name);
+    }
+
+    public List<Raid> getRaidsByDungeon(String dungeonName) {
+        return Collections.unmodifiableList(raidsByDungeon.getOrDefault(dungeonName, Collections.emptyList()));
+    }
+
+    public String getFallbackWorld() {
+        return fallbackWorld;
+    }
+
+    void setFallbackWorld(String fallbackWorld) {
+        this.fallbackWorld = fallbackWorld;
     }
 
     public String getRaidWorldPrefix() {
         return raidWorldPrefix;
     }
 
-    public void setRaidWorldPrefix(String raidWorldPrefix) {
+    void setRaidWorldPrefix(String raidWorldPrefix) {
         this.raidWorldPrefix = raidWorldPrefix;
     }
 
@@ -98,11 +183,123 @@ public class RaidsConfig {
         return cleanCycle;
     }
 
-    public void setCleanCycle(int cleanCycle) {
+    void setCleanCycle(int cleanCycle) {
         this.cleanCycle = cleanCycle;
     }
 
+    public int getCleanMaxUnloads() {
+        return cleanMaxUnloads;
+    }
+
+    void setCleanMaxUnloads(int cleanMaxUnloads) {
+        this.cleanMaxUnloads = cleanMaxUnloads;
+    }
+
+    public int getExpiryGrace() {
+        return expiryGrace;
+    }
+
+    void setExpiryGrace(int expiryGrace) {
+        this.expiryGrace = expiryGrace;
+    }
+
+    public int getMaxInstances() {
+        return maxInstances;
+    }
+
+    void setMaxInstances(int maxInstances) {
+        this.maxInstances = maxInstances;
+    }
+
+    public int getMaxPreparing() {
+        return maxPreparing;
+    }
+
+    void setMaxPreparing(int maxPreparing) {
+        this.maxPreparing = maxPreparing;
+    }
+
+    public int getCleanMaxMillis() {
+        return cleanMaxMillis;
+    }
+
+    void setCleanMaxMillis(int cleanMaxMillis) {
+        this.cleanMaxMillis = cleanMaxMillis;
+    }
+
+    public int getPoolRefillInterval() {
+        return poolRefillInterval;
+    }
+
+    void setPoolRefillInterval(int poolRefillInterval) {
+        this.poolRefillInterval = poolRefillInterval;
+    }
+
+    public int getExtractParallelism() {
+        return extractParallelism;
+    }
+
+    void setExtractParallelism(int extractParallelism) {
+        this.extractParallelism = extractParallelism;
+    }
+
+    public int getPackageParallelism() {
+        return packageParallelism;
+    }
+
+    void setPackageParallelism(int packageParallelism) {
+        this.packageParallelism = packageParallelism;
+    }
+
+    public PackageFormat getPackageFormat() {
+        return packageFormat;
+    }
+
+    void setPackageFormat(PackageFormat packageFormat) {
+        this.packageFormat = packageFormat;
+    }
+
+    public LocationStoreType getLocationStore() {
+        return locationStore;
+    }
+
+    void setLocationStore(LocationStoreType locationStore) {
+        this.locationStore = locationStore;
+    }
+
+    public int getTrashDeleteRate() {
+        return trashDeleteRate;
+    }
+
+    void setTrashDeleteRate(int trashDeleteRate) {
+        this.trashDeleteRate = trashDeleteRate;
+    }
+
+    public boolean isAutoReload() {
+        return autoReload;
+    }
+
+    void setAutoReload(boolean autoReload) {
+        this.autoReload = autoReload;
+    }
+
+    public int getReloadDebounce() {
+        return reloadDebounce;
+    }
+
+    void setReloadDebounce(int reloadDebounce) {
+        this.reloadDebounce = reloadDebounce;
+    }
+
+    public List<String> getOptimizerExcludes() {
+        return Collections.unmodifiableList(optimizerExcludes);
+    }
+
+    public Map<String, Bounds> getDungeonBounds() {
+        return Collections.unmodifiableMap(dungeonBounds);
+    }
+
     public List<Raid> getRaids() {
-        return raids;
+        return Collections.unmodifiableList(raids);
     }
 }
@@ -29,7 +29,9 @@ public class PluginEntityFactory extends EntityFactory {
                 ((PluginWorld) worldLoc.getWorld()).getWorld(),
                 worldLoc.getPoint().getX(),
                 worldLoc.getPoint().getY(),
-                worldLoc.getPoint().getZ()
+                worldLoc.getPoint().getZ(),
+                worldLoc.getYaw(),
+                worldLoc.getPitch()
         );
     }
 
@@ -40,7 +42,9 @@ public class PluginEntityFactory extends EntityFactory {
                 new Point(
                         location.getX(),
                         location.getY(),
-                        location.getZ()));
+                        location.getZ()),
+                location.getYaw(),
+                location.getPitch());
     }
 
     @Override
@@ -223,6 +227,21 @@ public class PluginEntityFactory extends EntityFactory {
             }.runTaskLater(plugin, ticks);
         }
 
+        @Override
+        public int repeatRunnable(Runnable runnable, long delay, long period) {
+            return plugin.getServer().getScheduler().runTaskTimer(plugin, runnable, delay, period).getTaskId();
+        }
+
+        @Override
+        public void cancelTask(int taskId) {
+            plugin.getServer().getScheduler().cancelTask(taskId);
+        }
+
+        @Override
+        public void runTask(Runnable runnable) {
+            plugin.getServer().getScheduler().runTask(plugin, runnable);
+        }
+
         @Override
         public void dispatchCommand(String command) {
             plugin.getServer().dispatchCommand(plugin.getServer().getConsoleSender(), command);
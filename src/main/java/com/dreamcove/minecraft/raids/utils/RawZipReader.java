@@ -0,0 +1,179 @@
+package com.dreamcove.minecraft.raids.utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * RawZipReader reads the central directory of an archive so entries can be handed to a
+ * {@link RawZipWriter} exactly as they were compressed.
+ */
+public class RawZipReader implements Closeable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT = 0xffff;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+
+    private final FileChannel channel;
+    private final Map<String, ZipRecord> records = new LinkedHashMap<>();
+    private final Map<String, Long> offsets = new LinkedHashMap<>();
+
+    public RawZipReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try {
+            readCentralDirectory();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ? (IOException) e : new IOException("Unable to read " + file.getName(), e);
+        }
+    }
+
+    private void readCentralDirectory() throws IOException {
+        long size = channel.size();
+        int tailSize = (int) Math.min(size, END_SIZE + MAX_COMMENT);
+        ByteBuffer tail = read(size - tailSize, tailSize);
+
+        int end = -1;
+        for (int i = tailSize - END_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+
+        if (end < 0) {
+            throw new IOException("Not a zip archive");
+        }
+
+        int count = tail.getShort(end + 10) & 0xffff;
+        long centralSize = tail.getInt(end + 12) & 0xffffffffL;
+        long centralOffset = tail.getInt(end + 16) & 0xffffffffL;
+
+        if (count == 0xffff || centralOffset == 0xffffffffL) {
+            throw new IOException("zip64 archives are not supported");
+        }
+
+        ByteBuffer central = read(centralOffset, (int) centralSize);
+        int position = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (central.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new IOException("Corrupt central directory");
+            }
+
+            int method = central.getShort(position + 10) & 0xffff;
+            long dosTime = central.getInt(position + 12) & 0xffffffffL;
+            long crc = central.getInt(position + 16) & 0xffffffffL;
+            long compressedSize = central.getInt(position + 20) & 0xffffffffL;
+            long uncompressedSize = central.getInt(position + 24) & 0xffffffffL;
+            int nameLength = central.getShort(position + 28) & 0xffff;
+            int extraLength = central.getShort(position + 30) & 0xffff;
+            int commentLength = central.getShort(position + 32) & 0xffff;
+            long localOffset = central.getInt(position + 42) & 0xffffffffL;
+
+            byte[] name = new byte[nameLength];
+            central.position(position + CENTRAL_HEADER_SIZE);
+            central.get(name);
+
+            String entryName = new String(name, StandardCharsets.UTF_8);
+            records.put(entryName, new ZipRecord(entryName, method, crc, compressedSize, uncompressedSize, dosTime));
+            offsets.put(entryName, localOffset);
+
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of archive");
+            }
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    public Collection<ZipRecord> getRecords() {
+        return records.values();
+    }
+
+    public ZipRecord getRecord(String name) {
+        return records.get(name);
+    }
+
+    /**
+     * Opens the entry's data exactly as it is stored in the archive.
+     */
+    public InputStream openRaw(String name) throws IOException {
+        ZipRecord record = records.get(name);
+
+        if (record == null) {
+            throw new FileNotFoundException(name);
+        }
+
+        long localOffset = offsets.get(name);
+        ByteBuffer header = read(localOffset, LOCAL_HEADER_SIZE);
+
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Corrupt local header for " + name);
+        }
+
+        long dataOffset = localOffset + LOCAL_HEADER_SIZE + (header.getShort(26) & 0xffff) + (header.getShort(28) & 0xffff);
+
+        return new EntryInputStream(dataOffset, record.getCompressedSize());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads a slice of the archive with positional reads, so several entries can be open at
+     * once and closing one leaves the archive open.
+     */
+    private class EntryInputStream extends InputStream {
+        private long position;
+        private long remaining;
+
+        EntryInputStream(long position, long length) {
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of archive");
+            }
+
+            position += read;
+            remaining -= read;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.dreamcove.minecraft.raids.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RawZipWriter writes entries whose data is already in its final (stored or deflated) form,
+ * which ZipOutputStream cannot do. This lets entries be copied out of an existing archive or
+ * compressed elsewhere without being inflated and deflated again.
+ * <p>
+ * Only what dungeon archives need is supported: no zip64, comments or extra fields.
+ */
+public class RawZipWriter implements Closeable {
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int VERSION = 20;
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final int DIRECTORY_ATTRIBUTE = 0x10;
+    private static final long MAX_SIZE = 0xffffffffL;
+    private static final int MAX_ENTRIES = 0xffff;
+
+    private final OutputStream out;
+    private final List<ZipRecord> records = new ArrayList<>();
+    private final List<Long> offsets = new ArrayList<>();
+    private long written;
+
+    public RawZipWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes an entry. {@code data} must supply exactly {@link ZipRecord#getCompressedSize()} bytes.
+     */
+    public void write(ZipRecord record, InputStream data, byte[] buffer) throws IOException {
+        writeLocalHeader(record);
+
+        long remaining = record.getCompressedSize();
+        while (remaining > 0) {
+            int read = data.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Unexpected end of data for " + record.getName());
+            }
+            writeBytes(buffer, read);
+            remaining -= read;
+        }
+    }
+
+    public void write(ZipRecord record, byte[] data) throws IOException {
+        if (data.length != record.getCompressedSize()) {
+            throw new IOException("Data for " + record.getName() + " does not match its compressed size");
+        }
+
+        writeLocalHeader(record);
+        writeBytes(data, data.length);
+    }
+
+    private void writeLocalHeader(ZipRecord record) throws IOException {
+        if (records.size() >= MAX_ENTRIES || written > MAX_SIZE || record.getCompressedSize() > MAX_SIZE || record.getSize() > MAX_SIZE) {
+            throw new IOException("Dungeon archive is too large, zip64 is not supported");
+        }
+
+        byte[] name = record.getName().getBytes(StandardCharsets.UTF_8);
+
+        offsets.add(written);
+        records.add(record);
+
+        writeInt(LOCAL_HEADER_SIGNATURE);
+        writeShort(VERSION);
+        writeShort(UTF8_FLAG);
+        writeShort(record.getMethod());
+        writeInt(record.getDosTime());
+        writeInt(record.getCrc());
+        writeInt(record.getCompressedSize());
+        writeInt(record.getSize());
+        writeShort(name.length);
+        writeShort(0);
+        writeBytes(name, name.length);
+    }
+
+    public long getBytesWritten() {
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            long centralOffset = written;
+
+            for (int i = 0; i < records.size(); i++) {
+                ZipRecord record = records.get(i);
+                byte[] name = record.getName().getBytes(StandardCharsets.UTF_8);
+
+                writeInt(CENTRAL_HEADER_SIGNATURE);
+                writeShort(VERSION);
+                writeShort(VERSION);
+                writeShort(UTF8_FLAG);
+                writeShort(record.getMethod());
+                writeInt(record.getDosTime());
+                writeInt(record.getCrc());
+                writeInt(record.getCompressedSize());
+                writeInt(record.getSize());
+                writeShort(name.length);
+                writeShort(0);
+                writeShort(0);
+                writeShort(0);
+                writeShort(0);
+                writeInt(record.isDirectory() ? DIRECTORY_ATTRIBUTE : 0);
+                writeInt(offsets.get(i));
+                writeBytes(name, name.length);
+            }
+
+            long centralSize = written - centralOffset;
+            if (centralOffset > MAX_SIZE) {
+                throw new IOException("Dungeon archive is too large, zip64 is not supported");
+            }
+
+            writeInt(END_SIGNATURE);
+            writeShort(0);
+            writeShort(0);
+            writeShort(records.size());
+            writeShort(records.size());
+            writeInt(centralSize);
+            writeInt(centralOffset);
+            writeShort(0);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+        written += 2;
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xffff));
+        writeShort((int) ((value >>> 16) & 0xffff));
+    }
+
+    private void writeBytes(byte[] bytes, int length) throws IOException {
+        out.write(bytes, 0, length);
+        written += length;
+    }
+}
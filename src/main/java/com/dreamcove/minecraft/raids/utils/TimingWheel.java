@@ -0,0 +1,167 @@
+package com.dreamcove.minecraft.raids.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * TimingWheel is a hierarchical timing wheel advanced once per server tick. Scheduling and
+ * cancelling are O(1); each level has 64 slots, so the four levels cover about 3.6 hours
+ * exactly and later deadlines are parked and re-placed as the wheel turns.
+ */
+public class TimingWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final Timeout[][] wheel = new Timeout[LEVELS][SLOTS];
+    private long tick;
+    private int size;
+
+    public TimingWheel() {
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[level][slot] = new Timeout(null, 0);
+            }
+        }
+    }
+
+    /**
+     * Runs the task after the given number of ticks (at least one).
+     */
+    public synchronized Timeout schedule(long delayTicks, Runnable task) {
+        Timeout timeout = new Timeout(task, tick + Math.max(1, delayTicks));
+        insert(timeout);
+        size++;
+
+        return timeout;
+    }
+
+    private void insert(Timeout timeout) {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+
+            if ((timeout.deadline >> shift) - (tick >> shift) < SLOTS) {
+                link(wheel[level][(int) ((timeout.deadline >> shift) & MASK)], timeout);
+                return;
+            }
+        }
+
+        // Beyond the top level: park in its furthest slot and re-place it when that slot cascades
+        int shift = SLOT_BITS * (LEVELS - 1);
+        link(wheel[LEVELS - 1][(int) (((tick >> shift) + SLOTS - 1) & MASK)], timeout);
+    }
+
+    private static void link(Timeout head, Timeout timeout) {
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    private static void unlink(Timeout timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    /**
+     * Moves the wheel one tick forward and runs whatever became due.
+     */
+    public void advance() {
+        List<Timeout> due = new ArrayList<>();
+
+        synchronized (this) {
+            tick++;
+
+            // Cascade higher levels first so their timers can land in the slot expiring now
+            for (int level = LEVELS - 1; level > 0; level--) {
+                int shift = SLOT_BITS * level;
+
+                if ((tick & ((1L << shift) - 1)) == 0) {
+                    Timeout head = wheel[level][(int) ((tick >> shift) & MASK)];
+
+                    while (head.next != head) {
+                        Timeout timeout = head.next;
+                        unlink(timeout);
+                        insert(timeout);
+                    }
+                }
+            }
+
+            Timeout head = wheel[0][(int) (tick & MASK)];
+            while (head.next != head) {
+                Timeout timeout = head.next;
+                unlink(timeout);
+                timeout.expired = true;
+                size--;
+                due.add(timeout);
+            }
+        }
+
+        for (Timeout timeout : due) {
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                Logger.getLogger(TimingWheel.class.getName()).log(Level.SEVERE, "Timer task failed", e);
+            }
+        }
+    }
+
+    public synchronized long getTick() {
+        return tick;
+    }
+
+    public synchronized int getSize() {
+        return size;
+    }
+
+    private synchronized boolean cancel(Timeout timeout) {
+        if (timeout.prev == null) {
+            return false;
+        }
+
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    public class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private Timeout prev;
+        private Timeout next;
+        private boolean expired;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+
+            // Slot heads are empty circular lists
+            if (task == null) {
+                prev = this;
+                next = this;
+            }
+        }
+
+        /**
+         * Returns false when the task has already run or was cancelled before.
+         */
+        public boolean cancel() {
+            return TimingWheel.this.cancel(this);
+        }
+
+        public boolean isExpired() {
+            synchronized (TimingWheel.this) {
+                return expired;
+            }
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.dreamcove.minecraft.raids.utils;
+
+import java.util.Calendar;
+import java.util.zip.ZipEntry;
+
+/**
+ * ZipRecord is the header information of one archive entry, as written by
+ * {@link RawZipWriter} and read back by {@link RawZipReader}.
+ */
+public class ZipRecord {
+    private final String name;
+    private final int method;
+    private final long crc;
+    private final long compressedSize;
+    private final long size;
+    private final long dosTime;
+
+    public ZipRecord(String name, int method, long crc, long compressedSize, long size, long dosTime) {
+        this.name = name;
+        this.method = method;
+        this.crc = crc;
+        this.compressedSize = compressedSize;
+        this.size = size;
+        this.dosTime = dosTime;
+    }
+
+    public static ZipRecord directory(String name, long time) {
+        return new ZipRecord(name, ZipEntry.STORED, 0, 0, 0, toDosTime(time));
+    }
+
+    public static long toDosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+
+        return (long) (year - 1980) << 25
+                | (calendar.get(Calendar.MONTH) + 1) << 21
+                | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isDirectory() {
+        return name.endsWith("/");
+    }
+
+    public int getMethod() {
+        return method;
+    }
+
+    public long getCrc() {
+        return crc;
+    }
+
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getDosTime() {
+        return dosTime;
+    }
+}
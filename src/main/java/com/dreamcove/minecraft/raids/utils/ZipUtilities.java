@@ -0,0 +1,139 @@
+package com.dreamcove.minecraft.raids.utils;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+public final class ZipUtilities {
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private ZipUtilities() {
+        // Hide the constructor
+    }
+
+    /**
+     * Extracts the archive one entry at a time through a ZipInputStream.
+     */
+    public static void extract(File zipFile, File targetDir, Predicate<String> filter) throws IOException {
+        try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(zipFile), BUFFER_SIZE))) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ZipEntry entry;
+
+            while ((entry = zis.getNextEntry()) != null) {
+                if (filter.test(entry.getName())) {
+                    File file = resolve(targetDir, entry.getName());
+                    if (entry.isDirectory()) {
+                        file.mkdirs();
+                    } else {
+                        file.getParentFile().mkdirs();
+                        write(zis, entry, file, buffer);
+                    }
+                }
+                zis.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Extracts the archive with random access, inflating up to {@code parallelism} entries at once.
+     * Directories are all created up front so the workers only ever write files.
+     */
+    public static void extract(File zipFile, File targetDir, Predicate<String> filter, int parallelism) throws IOException {
+        if (parallelism <= 1) {
+            extract(zipFile, targetDir, filter);
+            return;
+        }
+
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            Set<File> directories = new HashSet<>();
+            List<Callable<Void>> tasks = new ArrayList<>();
+
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                if (filter.test(entry.getName())) {
+                    final File file = resolve(targetDir, entry.getName());
+
+                    if (entry.isDirectory()) {
+                        directories.add(file);
+                    } else {
+                        directories.add(file.getParentFile());
+                        tasks.add(() -> {
+                            try (InputStream is = zip.getInputStream(entry)) {
+                                write(is, entry, file, new byte[BUFFER_SIZE]);
+                            }
+                            return null;
+                        });
+                    }
+                }
+            }
+
+            for (File directory : directories) {
+                directory.mkdirs();
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                for (Future<Void> future : pool.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Extraction of " + zipFile.getName() + " interrupted");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Error extracting " + zipFile.getName(), e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static File resolve(File targetDir, String entryName) throws IOException {
+        File file = new File(targetDir, entryName);
+
+        if (!file.getCanonicalPath().startsWith(targetDir.getCanonicalPath() + File.separator)) {
+            throw new IOException("Entry " + entryName + " is outside of the target directory");
+        }
+
+        return file;
+    }
+
+    private static void write(InputStream is, ZipEntry entry, File file, byte[] buffer) throws IOException {
+        if (entry.getMethod() == ZipEntry.STORED && entry.getSize() >= 0) {
+            // Stored entries are the file's bytes verbatim, so hand them straight to the channel
+            try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ReadableByteChannel in = Channels.newChannel(is);
+                long position = 0;
+                long size = entry.getSize();
+
+                while (position < size) {
+                    long transferred = out.transferFrom(in, position, size - position);
+                    if (transferred <= 0) {
+                        throw new EOFException("Unexpected end of entry " + entry.getName());
+                    }
+                    position += transferred;
+                }
+            }
+        } else {
+            try (OutputStream os = new FileOutputStream(file)) {
+                int read;
+
+                while ((read = is.read(buffer)) > 0) {
+                    os.write(buffer, 0, read);
+                }
+            }
+        }
+    }
+}
@@ -9,7 +9,10 @@ import org.bukkit.entity.EntityType;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 public class TestEntityFactory extends EntityFactory {
@@ -174,6 +177,13 @@ public class TestEntityFactory extends EntityFactory {
 
         List<Player> players = new ArrayList<>();
         List<World> worlds = new ArrayList<>();
+        Map<Integer, ScheduledFuture<?>> tasks = new ConcurrentHashMap<>();
+        AtomicInteger taskIds = new AtomicInteger();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "TestServer-Scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         protected void addPlayer(Player player) {
             players.add(player);
@@ -250,6 +260,30 @@ public class TestEntityFactory extends EntityFactory {
             t.start();
         }
 
+        @Override
+        public int repeatRunnable(Runnable runnable, long delay, long period) {
+            int taskId = taskIds.incrementAndGet();
+
+            // 50 ms per tick, like a server running at full speed
+            tasks.put(taskId, scheduler.scheduleAtFixedRate(runnable, delay * 50, period * 50, TimeUnit.MILLISECONDS));
+
+            return taskId;
+        }
+
+        @Override
+        public void cancelTask(int taskId) {
+            ScheduledFuture<?> task = tasks.remove(taskId);
+
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+
+        @Override
+        public void runTask(Runnable runnable) {
+            runnable.run();
+        }
+
         @Override
         public void dispatchCommand(String command) {
             Logger.getLogger(this.getClass().getName()).info("Dispatching command: " + command);
@@ -0,0 +1,140 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.config.Raid;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class TestManagedWorldRegistry {
+    private static final int THREADS = 8;
+    private static final int WORLDS_PER_THREAD = 200;
+
+    private RaidManagedWorld newRaidWorld(String name, String dungeonName) {
+        Raid raid = new Raid("raid-" + dungeonName, dungeonName);
+
+        TestPartyFactory.TestParty party = new TestPartyFactory.TestParty(name);
+        party.addMember(UUID.randomUUID());
+        party.addMember(UUID.randomUUID());
+
+        return new RaidManagedWorld(new TestEntityFactory.TestWorld(name), raid, party);
+    }
+
+    @Test
+    public void testIndexes() {
+        ManagedWorldRegistry registry = new ManagedWorldRegistry();
+        RaidManagedWorld raidWorld = newRaidWorld("raid_1", "arena");
+        UUID editorId = UUID.randomUUID();
+        DungeonManagedWorld editWorld = new DungeonManagedWorld(new TestEntityFactory.TestWorld("edit_1"), "arena", editorId);
+
+        registry.add(raidWorld);
+        registry.add(editWorld);
+
+        Assertions.assertSame(raidWorld, registry.getByName("raid_1"));
+        Assertions.assertSame(raidWorld, registry.getByParty(raidWorld.getParty().getId()));
+        Assertions.assertSame(raidWorld, registry.getByPlayer(raidWorld.getParty().getMembers().get(0)));
+        Assertions.assertSame(editWorld, registry.getByPlayer(editorId));
+        Assertions.assertEquals(2, registry.getByDungeon("arena").size());
+        Assertions.assertEquals(1, registry.getRaidCount());
+
+        Assertions.assertTrue(registry.remove(raidWorld));
+        Assertions.assertFalse(registry.remove(raidWorld));
+
+        Assertions.assertNull(registry.getByName("raid_1"));
+        Assertions.assertNull(registry.getByParty(raidWorld.getParty().getId()));
+        Assertions.assertNull(registry.getByPlayer(raidWorld.getParty().getMembers().get(0)));
+        Assertions.assertEquals(Collections.singleton(editWorld), new HashSet<>(registry.getByDungeon("arena")));
+        Assertions.assertEquals(0, registry.getRaidCount());
+    }
+
+    @Test
+    public void testReplacedPartyWorld() {
+        ManagedWorldRegistry registry = new ManagedWorldRegistry();
+        RaidManagedWorld first = newRaidWorld("raid_1", "arena");
+        RaidManagedWorld second = new RaidManagedWorld(new TestEntityFactory.TestWorld("raid_2"), first.getRaid(), first.getParty());
+
+        registry.add(first);
+        registry.add(second);
+
+        // Removing the older world must leave the party pointing at the newer one
+        registry.remove(first);
+
+        Assertions.assertSame(second, registry.getByParty(first.getParty().getId()));
+        Assertions.assertSame(second, registry.getByPlayer(first.getParty().getMembers().get(0)));
+    }
+
+    @Test
+    public void testConcurrentMutation() throws InterruptedException, ExecutionException {
+        ManagedWorldRegistry registry = new ManagedWorldRegistry();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<RaidManagedWorld>>> writers = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+
+                writers.add(executor.submit(() -> {
+                    List<RaidManagedWorld> kept = new ArrayList<>();
+                    start.await();
+
+                    for (int i = 0; i < WORLDS_PER_THREAD; i++) {
+                        RaidManagedWorld world = newRaidWorld("raid_" + thread + "_" + i, "dungeon_" + (i % 3));
+                        registry.add(world);
+
+                        // Remove every other world again
+                        if (i % 2 == 0) {
+                            Assertions.assertTrue(registry.remove(world));
+                        } else {
+                            kept.add(world);
+                        }
+                    }
+
+                    return kept;
+                }));
+            }
+
+            // Reads must never see a half-indexed world
+            Future<?> reader = executor.submit(() -> {
+                start.await();
+
+                while (writers.stream().anyMatch(f -> !f.isDone())) {
+                    for (ManagedWorld world : registry.getAll()) {
+                        RaidManagedWorld byParty = registry.getByParty(((RaidManagedWorld) world).getParty().getId());
+                        Assertions.assertTrue(byParty == null || byParty == world);
+                    }
+                }
+
+                return null;
+            });
+
+            start.countDown();
+
+            Set<RaidManagedWorld> kept = new HashSet<>();
+            for (Future<List<RaidManagedWorld>> writer : writers) {
+                kept.addAll(writer.get());
+            }
+            reader.get();
+
+            Assertions.assertEquals(THREADS * WORLDS_PER_THREAD / 2, registry.size());
+            Assertions.assertEquals(kept, new HashSet<>(registry.getAll()));
+            Assertions.assertEquals(kept.size(), registry.getRaidCount());
+
+            int byDungeon = 0;
+            for (int d = 0; d < 3; d++) {
+                byDungeon += registry.getByDungeon("dungeon_" + d).size();
+            }
+            Assertions.assertEquals(kept.size(), byDungeon);
+
+            for (RaidManagedWorld world : kept) {
+                Assertions.assertSame(world, registry.getByParty(world.getParty().getId()));
+                for (UUID member : world.getMemberIds()) {
+                    Assertions.assertSame(world, registry.getByPlayer(member));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.config.Raid;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+public class TestRaidState {
+
+    private RaidManagedWorld newRaidWorld(RaidStateStats stats) {
+        Raid raid = new Raid("raid", "arena");
+
+        TestPartyFactory.TestParty party = new TestPartyFactory.TestParty("party");
+        party.addMember(UUID.randomUUID());
+
+        return new RaidManagedWorld(new TestEntityFactory.TestWorld("raid_1"), raid, party, stats, System.currentTimeMillis());
+    }
+
+    @Test
+    public void testLifecycle() {
+        RaidStateStats stats = new RaidStateStats();
+        RaidManagedWorld world = newRaidWorld(stats);
+
+        Assertions.assertEquals(RaidState.PREPARING, world.getState());
+        Assertions.assertTrue(world.transition(RaidState.PREPARING, RaidState.QUEUED));
+        Assertions.assertFalse(world.transition(RaidState.PREPARING, RaidState.QUEUED));
+        Assertions.assertTrue(world.transition(RaidState.QUEUED, RaidState.STARTING));
+        Assertions.assertTrue(world.transition(RaidState.STARTING, RaidState.RUNNING));
+        Assertions.assertTrue(world.isActive());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> world.transition(RaidState.RUNNING, RaidState.DONE));
+
+        Assertions.assertTrue(world.transition(RaidState.RUNNING, RaidState.ENDING));
+        Assertions.assertFalse(world.cancel());
+        Assertions.assertTrue(world.transition(RaidState.ENDING, RaidState.CLEANING));
+        Assertions.assertTrue(world.transition(RaidState.CLEANING, RaidState.DONE));
+        Assertions.assertTrue(world.isExpired());
+
+        Assertions.assertTrue(world.getEnteredAt(RaidState.DONE) >= world.getEnteredAt(RaidState.PREPARING));
+        Assertions.assertEquals(0, world.getEnteredAt(RaidState.CANCELED));
+
+        for (RaidState state : RaidState.values()) {
+            Assertions.assertEquals(state == RaidState.DONE ? 1 : 0, stats.getCurrent(state));
+            Assertions.assertEquals(state == RaidState.CANCELED ? 0 : 1, stats.getEntered(state));
+        }
+    }
+
+    @Test
+    public void testConcurrentStartAndCancel() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            for (int i = 0; i < 200; i++) {
+                RaidStateStats stats = new RaidStateStats();
+                RaidManagedWorld world = newRaidWorld(stats);
+                world.transition(RaidState.PREPARING, RaidState.QUEUED);
+
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> results = new ArrayList<>();
+
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return world.transition(RaidState.QUEUED, RaidState.STARTING);
+                }));
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return world.transition(RaidState.QUEUED, RaidState.CANCELED);
+                }));
+                start.countDown();
+
+                // Exactly one of the two callers wins the queued raid
+                Assertions.assertNotEquals(results.get(0).get(), results.get(1).get());
+                Assertions.assertEquals(0, stats.getCurrent(RaidState.QUEUED));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -4,16 +4,29 @@ import com.dreamcove.minecraft.raids.api.EntityFactory;
 import com.dreamcove.minecraft.raids.api.PartyFactory;
 import com.dreamcove.minecraft.raids.api.World;
 import com.dreamcove.minecraft.raids.api.WorldLocation;
+import com.dreamcove.minecraft.raids.config.LocationStoreType;
 import com.dreamcove.minecraft.raids.config.Point;
+import com.dreamcove.minecraft.raids.config.RaidsConfig;
 import com.dreamcove.minecraft.raids.utils.FileUtilities;
 import org.bukkit.WorldCreator;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
 import org.junit.jupiter.api.*;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class TestRaidsManager {
     private final File dataDirectory = new File(new File(new File("target"), "test-data"), "plugin");
@@ -66,6 +79,17 @@ public class TestRaidsManager {
         return player;
     }
 
+    /**
+     * Parses config.yml into a fresh snapshot, lets the test adjust it and publishes it.
+     */
+    private void updateConfig(Consumer<YamlConfiguration> change) throws IOException, InvalidConfigurationException {
+        YamlConfiguration yamlConfig = new YamlConfiguration();
+        yamlConfig.load(new File(dataDirectory, "config.yml"));
+
+        change.accept(yamlConfig);
+        manager.publishConfig(RaidsConfig.from(yamlConfig));
+    }
+
     @AfterEach
     public void testShutdown() {
         manager.shutdown();
@@ -75,11 +99,11 @@ public class TestRaidsManager {
     public void testHelp() {
         Assertions.assertEquals(0, manager.getHelp(new ArrayList<>()).size());
 
-        Assertions.assertEquals(6, manager.getHelp(allPerms).size());
+        Assertions.assertEquals(9, manager.getHelp(allPerms).size());
     }
 
     @Test
-    public void testLastLocation() {
+    public void testLastLocation() throws IOException {
 
         LocationManager locManager = new LocationManager(new File(dataDirectory, "test-locations.yml"));
 
@@ -94,6 +118,8 @@ public class TestRaidsManager {
         // Ensure we're keeping the map
         Assertions.assertEquals(newLoc, locManager.get(uuid));
 
+        locManager.close();
+
         // New instance to restore locations
         locManager = new LocationManager(new File(dataDirectory, "test-locations.yml"));
 
@@ -103,6 +129,196 @@ public class TestRaidsManager {
         Assertions.assertEquals(newLoc, locManager.remove(uuid));
 
         Assertions.assertNull(locManager.get(uuid));
+
+        locManager.flush();
+        Assertions.assertNull(new LocationManager(new File(dataDirectory, "test-locations.yml")).get(uuid));
+    }
+
+    @Test
+    public void testLazyReturnWorld() throws Exception {
+        LocationManager locManager = new LocationManager(new File(dataDirectory, "lazy-locations.yml"));
+        UUID uuid = UUID.randomUUID();
+
+        // The world is not loaded yet when the location is read back
+        locManager.store(uuid, new WorldLocation("late_world", new Point(1, 2, 3), 0, 0));
+        locManager.close();
+        locManager = new LocationManager(new File(dataDirectory, "lazy-locations.yml"));
+
+        WorldLocation stored = locManager.get(uuid);
+        Assertions.assertNotNull(stored);
+        Assertions.assertNull(stored.getWorld());
+
+        World lateWorld = EntityFactory.getInstance().getServer().createWorld(new WorldCreator("late_world"));
+        Assertions.assertEquals(lateWorld, locManager.get(uuid).getWorld());
+        locManager.close();
+
+        // A world that never shows up sends the player to the fallback spawn
+        updateConfig(config -> config.set("fallback-world", "empty_world"));
+        player3.teleport(new WorldLocation("gone_world", new Point(1, 2, 3), 0, 0));
+        manager.storeLastLocation(player3);
+        player3.teleport(lateWorld.getSpawnLocation());
+
+        manager.returnLastLocation(player3.getUniqueId());
+
+        Assertions.assertEquals(emptyWorld, player3.getWorld());
+    }
+
+    @Test
+    public void testLocationMigration() throws IOException {
+        File locationFile = new File(dataDirectory, "old-locations.yml");
+        UUID uuid = UUID.randomUUID();
+
+        dataDirectory.mkdirs();
+        Files.write(locationFile.toPath(), Arrays.asList("locations:", "  " + uuid + ": empty_world:1.00,2.00,3.00"));
+
+        LocationManager locManager = new LocationManager(locationFile);
+
+        Assertions.assertEquals(new WorldLocation(emptyWorld, new Point(1, 2, 3)), locManager.get(uuid));
+        Assertions.assertFalse(locationFile.exists());
+        Assertions.assertTrue(new File(dataDirectory, "old-locations.yml.migrated").exists());
+        locManager.close();
+
+        // Snapshot and journal of the previous format
+        File journalFile = new File(dataDirectory, "journal-locations.journal");
+        UUID removed = UUID.randomUUID();
+        Files.write(journalFile.toPath(), Arrays.asList(
+                "P\t" + uuid + "\tempty_world:4.00,5.00,6.00:90.0,10.0",
+                "P\t" + removed + "\tempty_world:1.00,1.00,1.00",
+                "R\t" + removed));
+
+        locManager = new LocationManager(new File(dataDirectory, "journal-locations.yml"));
+
+        Assertions.assertEquals(1, locManager.size());
+        Assertions.assertEquals(new WorldLocation(emptyWorld, new Point(4, 5, 6), 90, 10), locManager.get(uuid));
+        Assertions.assertFalse(journalFile.exists());
+        locManager.close();
+    }
+
+    @Test
+    public void testBinaryLocationStore() throws IOException {
+        File storeFile = new File(dataDirectory, "test-locations.dat");
+        Map<UUID, Double> expected = new HashMap<>();
+        List<UUID> players = new ArrayList<>();
+
+        try (BinaryLocationStore store = new BinaryLocationStore(storeFile)) {
+            // Enough records to grow both the file and the index
+            for (int i = 0; i < 3000; i++) {
+                UUID uuid = UUID.randomUUID();
+                players.add(uuid);
+                store.put(uuid, new WorldLocation("world_" + (i % 3), new Point(i + 0.123456789, i, -i), i % 360, 0));
+                expected.put(uuid, i + 0.123456789);
+            }
+
+            // Remove every third one, which moves records around
+            for (int i = 0; i < players.size(); i += 3) {
+                Assertions.assertNotNull(store.remove(players.get(i)));
+                Assertions.assertNull(store.remove(players.get(i)));
+                expected.remove(players.get(i));
+            }
+
+            store.put(players.get(1), new WorldLocation("world_2", new Point(42, 42, 42), 1.5f, -1.5f));
+            expected.put(players.get(1), 42.0);
+        }
+
+        try (BinaryLocationStore store = new BinaryLocationStore(storeFile)) {
+            Assertions.assertEquals(expected.size(), store.size());
+
+            for (UUID uuid : players) {
+                WorldLocation entry = store.get(uuid);
+
+                if (expected.containsKey(uuid)) {
+                    Assertions.assertEquals(expected.get(uuid), entry.getPoint().getX());
+                } else {
+                    Assertions.assertNull(entry);
+                }
+            }
+
+            WorldLocation entry = store.get(players.get(1));
+            Assertions.assertEquals("world_2", entry.getWorldName());
+            Assertions.assertEquals(1.5f, entry.getYaw());
+            Assertions.assertEquals(-1.5f, entry.getPitch());
+        }
+    }
+
+    @Test
+    public void testJournalLocationStore() throws IOException {
+        File snapshotFile = new File(dataDirectory, "test-locations.snapshot");
+        File journalFile = new File(dataDirectory, "test-locations.journal");
+        UUID kept = UUID.randomUUID();
+        UUID removed = UUID.randomUUID();
+
+        try (LocationJournal store = new LocationJournal(snapshotFile, journalFile, 1024)) {
+            store.put(kept, new WorldLocation("world", new Point(1, 2, 3), 90, 10));
+            store.put(removed, new WorldLocation("world", new Point(4, 5, 6), 0, 0));
+            store.flush();
+
+            Assertions.assertFalse(snapshotFile.exists());
+            Assertions.assertNotNull(store.remove(removed));
+            Assertions.assertNull(store.remove(removed));
+        }
+
+        try (LocationJournal store = new LocationJournal(snapshotFile, journalFile, 1024)) {
+            Assertions.assertEquals(1, store.size());
+            Assertions.assertEquals(new Point(1, 2, 3), store.get(kept).getPoint());
+            Assertions.assertNull(store.get(removed));
+
+            // Enough changes to push the journal past the threshold
+            for (int i = 0; i < 50; i++) {
+                store.put(kept, new WorldLocation("world", new Point(i, 64, -i), 0, 0));
+            }
+        }
+
+        Assertions.assertTrue(snapshotFile.exists());
+        Assertions.assertFalse(journalFile.exists());
+
+        try (LocationJournal store = new LocationJournal(snapshotFile, journalFile, 1024)) {
+            Assertions.assertEquals(1, store.size());
+            Assertions.assertEquals(new Point(49, 64, -49), store.get(kept).getPoint());
+        }
+    }
+
+    @Test
+    public void testMigrateLocations() throws Exception {
+        File yamlFile = new File(dataDirectory, "test-locations.yml");
+        File binaryFile = new File(dataDirectory, "test-migrated.dat");
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        try (YamlLocationStore store = new YamlLocationStore(yamlFile)) {
+            store.put(first, new WorldLocation("world", new Point(1, 2, 3), 90, 10));
+            store.put(second, new WorldLocation("nether", new Point(4, 5, 6), 0, 0));
+            Assertions.assertNotNull(store.remove(second));
+            store.put(second, new WorldLocation("end", new Point(7, 8, 9), 0, 0));
+        }
+
+        try (YamlLocationStore from = new YamlLocationStore(yamlFile); BinaryLocationStore to = new BinaryLocationStore(binaryFile)) {
+            Assertions.assertEquals(2, LocationManager.migrate(from, to));
+        }
+
+        try (BinaryLocationStore store = new BinaryLocationStore(binaryFile)) {
+            Assertions.assertEquals(2, store.size());
+            Assertions.assertEquals("world", store.get(first).getWorldName());
+            Assertions.assertEquals(90f, store.get(first).getYaw());
+            Assertions.assertEquals("end", store.get(second).getWorldName());
+            Assertions.assertEquals(9.0, store.get(second).getPoint().getZ());
+        }
+
+        // The store in use can only be a source
+        Assertions.assertThrows(RaidsException.class, () -> manager.migrateLocations(LocationStoreType.YAML, LocationStoreType.BINARY));
+
+        // A reloaded location-store setting leaves the store opened at startup in use
+        File configFile = new File(dataDirectory, "config.yml");
+        Files.write(configFile.toPath(), new String(Files.readAllBytes(configFile.toPath()))
+                .replace("location-store: binary", "location-store: sqlite").getBytes());
+        manager.reload().get();
+        Assertions.assertEquals(LocationStoreType.SQLITE, manager.getRaidsConfig().getLocationStore());
+        Assertions.assertThrows(RaidsException.class, () -> manager.migrateLocations(LocationStoreType.SQLITE, LocationStoreType.BINARY));
+
+        manager.storeLastLocation(getNewPlayer());
+        Assertions.assertEquals(1, manager.migrateLocations(LocationStoreType.BINARY, LocationStoreType.SQLITE).get().intValue());
+        Assertions.assertTrue(new File(dataDirectory, "locations.db").exists());
+        Assertions.assertEquals(1, manager.migrateLocations(LocationStoreType.BINARY, LocationStoreType.YAML).get().intValue());
+        Assertions.assertTrue(new File(dataDirectory, "locations.yml").exists());
     }
 
     @Test
@@ -151,18 +367,33 @@ public class TestRaidsManager {
 
         Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
 
-        Assertions.assertNotNull(manager.getRaidByParty(party1.getId()));
+        Assertions.assertNotNull(waitForRaid(party1.getId()));
 
         Assertions.assertTrue(manager.cancelRaid(party1.getId()));
 
         Assertions.assertNull(manager.getRaidByParty(party1.getId()));
     }
 
+    private RaidManagedWorld waitForRaid(UUID partyId) {
+        long timeout = System.currentTimeMillis() + 10000;
+        RaidManagedWorld world;
+
+        while ((world = manager.getRaidByParty(partyId)) == null && System.currentTimeMillis() < timeout) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        return world;
+    }
+
     private void resetAllRaids() {
         RaidManagedWorld world;
 
-        while ((world = manager.getRaidByParty(party1.getId())) != null) {
-            world.setState(RaidManagedWorld.STATE_CANCELED);
+        while ((world = manager.getRaidByParty(party1.getId())) != null && world.cancel()) {
             world.getWorld().getPlayers().clear();
         }
     }
@@ -173,13 +404,80 @@ public class TestRaidsManager {
 
         Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
 
-        Assertions.assertNotNull(manager.getRaidByParty(party1.getId()));
+        Assertions.assertNotNull(waitForRaid(party1.getId()));
 
         Assertions.assertTrue(manager.processCommand(player1, "raids", Collections.singletonList("cancel"), allPerms));
 
         Assertions.assertNull(manager.getRaidByParty(party1.getId()));
     }
 
+    @Test
+    public void testAdmissionQueue() throws Exception {
+        updateConfig(config -> config.set("max-instances", 1));
+
+        TestPartyFactory.TestParty party2 = new TestPartyFactory.TestParty(UUID.randomUUID().toString());
+        party2.addMember(player3.getUniqueId());
+        ((TestPartyFactory) PartyFactory.getInstance()).addParty(party2);
+
+        Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
+        Assertions.assertNotNull(waitForRaid(party1.getId()));
+
+        // No room for a second instance, so the party waits in line and can leave it again
+        Assertions.assertTrue(manager.processCommand(player3, "raids", Arrays.asList("start", "example"), allPerms));
+        Assertions.assertNull(manager.getRaidByParty(party2.getId()));
+        Assertions.assertTrue(manager.cancelRaid(party2.getId()));
+        Assertions.assertFalse(manager.cancelRaid(party2.getId()));
+
+        // Canceling the running instance admits the next party
+        Assertions.assertTrue(manager.processCommand(player3, "raids", Arrays.asList("start", "example"), allPerms));
+        Assertions.assertTrue(manager.cancelRaid(party1.getId()));
+        Assertions.assertNotNull(waitForRaid(party2.getId()));
+    }
+
+    @Test
+    public void testCancelWhilePreparing() throws Exception {
+        updateConfig(config -> config.set("raids.example.pool-size", 1));
+
+        // The pool is still empty, so the world is being prepared when the party cancels
+        Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
+        Assertions.assertTrue(manager.cancelRaid(party1.getId()));
+        Assertions.assertFalse(manager.cancelRaid(party1.getId()));
+
+        // The prepared world is pooled rather than started
+        Assertions.assertTrue(waitFor(() -> manager.getWorldPool().getSize("example") == 1));
+        Assertions.assertNull(manager.getRaidByParty(party1.getId()));
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 15000;
+
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > timeout) {
+                return false;
+            }
+            Thread.sleep(50);
+        }
+
+        return true;
+    }
+
+    @Test
+    public void testDuplicateStart() throws InterruptedException {
+        // Leader and member start at the same time
+        Thread other = new Thread(() -> manager.processCommand(player2, "raids", Arrays.asList("start", "example"), allPerms));
+        other.start();
+        Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
+        other.join();
+
+        RaidManagedWorld raid = Objects.requireNonNull(waitForRaid(party1.getId()));
+        Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
+
+        Assertions.assertEquals(Collections.singletonList(raid.getName()), EntityFactory.getInstance().getServer().getWorlds().stream()
+                .map(World::getName)
+                .filter(n -> n.startsWith(manager.getRaidsConfig().getRaidWorldPrefix()))
+                .collect(Collectors.toList()));
+    }
+
     @Test
     public void testCommandStartWithoutParty() {
         List<World> worlds = EntityFactory.getInstance().getServer().getWorlds();
@@ -195,7 +493,7 @@ public class TestRaidsManager {
 
         Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
 
-        Assertions.assertNotNull(manager.getRaidByParty(party1.getId()));
+        Assertions.assertNotNull(waitForRaid(party1.getId()));
 
         try {
             Thread.sleep(6 * 1000);
@@ -213,14 +511,42 @@ public class TestRaidsManager {
     }
 
     @Test
-    public void testCommandReload() {
-        manager.getRaidsConfig().getRaids().clear();
-
-        Assertions.assertEquals(0, manager.getAvailableRaids().size());
-
+    public void testCommandReload() throws IOException, InterruptedException {
+        File configFile = new File(dataDirectory, "config.yml");
+        byte[] original = Files.readAllBytes(configFile.toPath());
+        RaidsConfig before = manager.getRaidsConfig();
+
+        Assertions.assertNotNull(before.getRaid("example"));
+        Assertions.assertEquals(1, before.getRaidsByDungeon("arena").size());
+
+        // A broken file leaves the current snapshot in place
+        Files.write(configFile.toPath(), "raids: [".getBytes());
+        Assertions.assertThrows(ExecutionException.class, () -> manager.reload().get());
+        Assertions.assertSame(before, manager.getRaidsConfig());
+
+        // Settings held outside the snapshot follow a reload
+        Files.write(configFile.toPath(), new String(original).replace("trash-delete-rate: 0", "trash-delete-rate: 5").getBytes());
+        Assertions.assertEquals(0, manager.getWorldTrash().getBytesPerSecond());
         Assertions.assertTrue(manager.processCommand(player1, "raids", Collections.singletonList("reload"), allPerms));
 
+        Assertions.assertTrue(waitFor(() -> manager.getRaidsConfig() != before));
         Assertions.assertEquals(1, manager.getAvailableRaids().size());
+        Assertions.assertEquals(5 * 1024L * 1024L, manager.getWorldTrash().getBytesPerSecond());
+    }
+
+    @Test
+    public void testAutoReload() throws IOException, InterruptedException {
+        File dungeonDirectory = new File(dataDirectory, "dungeons");
+        File configFile = new File(dataDirectory, "config.yml");
+        RaidsConfig before = manager.getRaidsConfig();
+
+        Files.copy(new File(dungeonDirectory, "arena.zip").toPath(), new File(dungeonDirectory, "copied.zip").toPath());
+        Files.write(configFile.toPath(), (new String(Files.readAllBytes(configFile.toPath()))
+                + "  copied:\n    dungeon: copied\n").getBytes());
+
+        Assertions.assertTrue(waitFor(() -> manager.getRaidsConfig() != before && manager.getAvailableDungeons().contains("copied")));
+        Assertions.assertNotNull(manager.getRaidsConfig().getRaid("copied"));
+        Assertions.assertEquals(2, manager.getAvailableRaids().size());
     }
 
     @Test
@@ -235,7 +561,7 @@ public class TestRaidsManager {
 
         Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
 
-        Assertions.assertNotNull(manager.getRaidByParty(party1.getId()));
+        Assertions.assertNotNull(waitForRaid(party1.getId()));
 
         TestEntityFactory.TestWorld world = (TestEntityFactory.TestWorld) manager.getRaidByParty(party1.getId()).getWorld();
 
@@ -274,7 +600,7 @@ public class TestRaidsManager {
 
         Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
 
-        Assertions.assertNotNull(manager.getRaidByParty(party1.getId()));
+        Assertions.assertNotNull(waitForRaid(party1.getId()));
 
         TestEntityFactory.TestWorld world = (TestEntityFactory.TestWorld) manager.getRaidByParty(party1.getId()).getWorld();
 
@@ -317,7 +643,7 @@ public class TestRaidsManager {
     }
 
     @Test
-    public void testCommandPackage() throws IOException {
+    public void testCommandPackage() throws IOException, InterruptedException {
         // Create a temporary world
         File worldDir = new File(EntityFactory.getInstance().getServer().getWorldContainer(), "temp");
         File childDir = new File(worldDir, "child");
@@ -335,7 +661,7 @@ public class TestRaidsManager {
 
         Assertions.assertTrue(manager.processCommand(player2, "raids", Arrays.asList("package", "temp", "new-dungeon"), allPerms));
 
-        Assertions.assertTrue(manager.getAvailableDungeons().contains("new-dungeon"));
+        Assertions.assertTrue(waitFor(() -> manager.getAvailableDungeons().contains("new-dungeon")));
     }
 
     @Test
@@ -357,7 +683,7 @@ public class TestRaidsManager {
 
         Assertions.assertTrue(manager.processCommand(player2, "raids", Arrays.asList("package", "temp", "new-dungeon-1"), allPerms));
 
-        Assertions.assertTrue(manager.getAvailableDungeons().contains("new-dungeon-1"));
+        Assertions.assertTrue(waitFor(() -> manager.getAvailableDungeons().contains("new-dungeon-1")));
 
         long origDungeonTimestamp = new File(new File(manager.getDataDirectory(), "dungeons"), "new-dungeon-1.zip").lastModified();
 
@@ -390,7 +716,7 @@ public class TestRaidsManager {
 
         Assertions.assertTrue(manager.processCommand(player2, "raids", Arrays.asList("package", "temp", "new-dungeon-2"), allPerms));
 
-        Assertions.assertTrue(manager.getAvailableDungeons().contains("new-dungeon-2"));
+        Assertions.assertTrue(waitFor(() -> manager.getAvailableDungeons().contains("new-dungeon-2")));
 
         long origDungeonTimestamp = new File(new File(manager.getDataDirectory(), "dungeons"), "new-dungeon-2.zip").lastModified();
 
@@ -398,9 +724,205 @@ public class TestRaidsManager {
 
         Assertions.assertTrue(manager.processCommand(player2, "raids", Arrays.asList("package", "temp", "new-dungeon-2", "-f"), allPerms));
 
-        long newDungeonTimestamp = new File(new File(manager.getDataDirectory(), "dungeons"), "new-dungeon-2.zip").lastModified();
+        File dungeonFile = new File(new File(manager.getDataDirectory(), "dungeons"), "new-dungeon-2.zip");
+
+        Assertions.assertTrue(waitFor(() -> dungeonFile.lastModified() != origDungeonTimestamp));
+    }
+
+    @Test
+    public void testDungeonTemplateCache() throws IOException {
+        File dungeonFile = new File(new File(manager.getDataDirectory(), "dungeons"), "arena.zip");
+        DungeonTemplateCache cache = new DungeonTemplateCache(new File(manager.getDataDirectory(), "test-templates"));
+
+        File template = cache.getTemplate("arena", dungeonFile);
+        long extractedAt = template.lastModified();
+
+        Assertions.assertTrue(template.isDirectory());
+        Assertions.assertEquals(template, cache.getTemplate("arena", dungeonFile));
+        Assertions.assertEquals(extractedAt, template.lastModified());
+
+        File worldDir = new File(EntityFactory.getInstance().getServer().getWorldContainer(), "template-copy");
+        cache.instantiate("arena", dungeonFile, worldDir);
+
+        Assertions.assertEquals(
+                Objects.requireNonNull(template.list()).length,
+                Objects.requireNonNull(worldDir.list()).length);
+    }
+
+    @Test
+    public void testTemplateReextractDuringCopy() throws Exception {
+        File dungeonFile = new File(new File(manager.getDataDirectory(), "dungeons"), "arena.zip");
+        File templates = new File(manager.getDataDirectory(), "test-templates");
+        DungeonTemplateCache cache = new DungeonTemplateCache(templates);
+        int expected = countFiles(cache.getTemplate("arena", dungeonFile));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            List<Future<File>> copies = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                File worldDir = new File(EntityFactory.getInstance().getServer().getWorldContainer(), "template-copy-" + i);
+                copies.add(executor.submit(() -> {
+                    cache.instantiate("arena", dungeonFile, worldDir);
+                    return worldDir;
+                }));
+            }
+
+            // Losing the stamp forces a re-extraction while copies are running
+            while (copies.stream().anyMatch(c -> !c.isDone())) {
+                FileUtilities.deleteFile(new File(templates, "arena.stamp"));
+                cache.getTemplate("arena", dungeonFile);
+            }
+
+            for (Future<File> copy : copies) {
+                Assertions.assertEquals(expected, countFiles(copy.get()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int countFiles(File dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir.toPath())) {
+            return (int) files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    public void testWorldPool() throws Exception {
+        updateConfig(config -> config.set("raids.example.pool-size", 1));
+
+        // Wait for the refill cycle to prepare a world
+        Assertions.assertTrue(waitFor(() -> manager.getWorldPool().getSize("example") == 1));
+
+        Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
+
+        Assertions.assertEquals(1, manager.getWorldPool().getHits());
+        Assertions.assertEquals(0, manager.getWorldPool().getSize("example"));
+        Assertions.assertNotNull(manager.getRaidByParty(party1.getId()));
+    }
+
+    @Test
+    public void testWorldRecycle() throws Exception {
+        updateConfig(config -> {
+            config.set("raids.example.recycle", true);
+            config.set("expiry-grace", 0);
+        });
+
+        Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
+
+        RaidManagedWorld raid = Objects.requireNonNull(waitForRaid(party1.getId()));
+        World world = raid.getWorld();
+        File region = new File(new File(world.getWorldFolder(), "region"), "r.0.0.mca");
+        long regionSize = region.length();
+
+        // What a raid might leave behind
+        Files.write(region.toPath(), "changed".getBytes());
+        Files.write(new File(world.getWorldFolder(), "extra.dat").toPath(), "extra".getBytes());
+
+        // Let the raid start, then leave it
+        Assertions.assertTrue(waitFor(() -> raid.getState() == RaidState.RUNNING));
+        Assertions.assertTrue(manager.processCommand(player1, "raids", Collections.singletonList("exit"), allPerms));
+        Assertions.assertTrue(manager.processCommand(player2, "raids", Collections.singletonList("exit"), allPerms));
+        manager.cleanManagedWorlds();
+
+        Assertions.assertTrue(waitFor(() -> manager.getWorldPool().contains(world.getName())));
+        Assertions.assertEquals(regionSize, region.length());
+        Assertions.assertFalse(new File(world.getWorldFolder(), "extra.dat").exists());
+    }
+
+    @Test
+    public void testOccupancyExpiry() throws Exception {
+        updateConfig(config -> config.set("expiry-grace", 1));
+
+        Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
+
+        RaidManagedWorld raid = Objects.requireNonNull(waitForRaid(party1.getId()));
+        Assertions.assertTrue(waitFor(() -> raid.getState() == RaidState.RUNNING));
+
+        Assertions.assertEquals(2, raid.getOccupantCount());
+
+        // One member logs out, the other walks out
+        manager.updateOccupancy(player1.getUniqueId(), null);
+        Assertions.assertEquals(1, raid.getOccupantCount());
+        manager.updateOccupancy(player2.getUniqueId(), "empty_world");
+        Assertions.assertEquals(0, raid.getOccupantCount());
+
+        // Still within the grace period
+        Assertions.assertNotNull(manager.getManagedWorld(raid.getName()));
+
+        Assertions.assertTrue(waitFor(() -> manager.getManagedWorld(raid.getName()) == null));
+    }
+
+    @Test
+    public void testScrubberBudget() throws Exception {
+        updateConfig(config -> config.set("clean-max-unloads", 2));
+
+        for (int i = 0; i < 5; i++) {
+            EntityFactory.getInstance().getServer().createWorld(new WorldCreator("partyraids_unused_" + i));
+        }
+
+        manager.cleanManagedWorlds();
+
+        Assertions.assertEquals(3, EntityFactory.getInstance().getServer().getWorlds().stream()
+                .filter(w -> w.getName().startsWith("partyraids_unused_"))
+                .count());
+
+        // Leftovers are carried into the following ticks
+        Assertions.assertTrue(waitFor(() -> EntityFactory.getInstance().getServer().getWorlds().stream()
+                .noneMatch(w -> w.getName().startsWith("partyraids_unused_"))));
+        Assertions.assertTrue(manager.getStats().stream().anyMatch(l -> l.startsWith("Scrubber queue: 0, unloads: 5")));
+    }
+
+    @Test
+    public void testInstanceReconcile() throws InterruptedException {
+        File container = EntityFactory.getInstance().getServer().getWorldContainer();
+        File logFile = new File(dataDirectory, "instances.log");
+
+        Assertions.assertTrue(manager.processCommand(player1, "raids", Arrays.asList("start", "example"), allPerms));
+        RaidManagedWorld raid = Objects.requireNonNull(waitForRaid(party1.getId()));
+
+        InstanceLog.Entry entry = new InstanceLog(logFile).load().get(raid.getName());
+        Assertions.assertNotNull(entry);
+        Assertions.assertEquals(party1.getId(), entry.getPartyId());
+        Assertions.assertEquals(RaidState.QUEUED, entry.getState());
+
+        manager.shutdown();
+        Assertions.assertTrue(new InstanceLog(logFile).load().isEmpty());
+
+        // A crash leaves an unloaded raid world behind along with its log entry
+        File orphan = new File(container, "partyraids_orphan");
+        new File(orphan, "region").mkdirs();
+        InstanceLog crashed = new InstanceLog(logFile);
+        crashed.recordCreated(raid);
+        crashed.close();
+
+        manager = new RaidsManager(dataDirectory);
+
+        Assertions.assertFalse(orphan.exists());
+        Assertions.assertTrue(new InstanceLog(logFile).load().isEmpty());
+    }
+
+    @Test
+    public void testWorldTrash() throws IOException, InterruptedException {
+        File container = EntityFactory.getInstance().getServer().getWorldContainer();
+        File trash = new File(container, ".trash");
+
+        // Left over from a previous run
+        File leftover = new File(new File(trash, "partyraids_leftover"), "region");
+        leftover.mkdirs();
+        Files.write(new File(leftover, "r.0.0.mca").toPath(), new byte[4096]);
+
+        manager.shutdown();
+        manager = new RaidsManager(dataDirectory);
+
+        World world = EntityFactory.getInstance().getServer().createWorld(new WorldCreator("partyraids_trash"));
+        Files.write(new File(world.getWorldFolder(), "level.dat").toPath(), new byte[4096]);
+
+        manager.removeWorld(world);
+
+        Assertions.assertFalse(world.getWorldFolder().exists());
 
-        Assertions.assertNotEquals(origDungeonTimestamp, newDungeonTimestamp);
+        Assertions.assertTrue(waitFor(() -> Objects.requireNonNull(trash.list()).length == 0));
     }
 
     @Test
@@ -422,7 +944,7 @@ public class TestRaidsManager {
 
         Assertions.assertTrue(manager.processCommand(player1, "raids", Collections.singletonList("save"), allPerms));
 
-        Assertions.assertNotEquals(time, file.lastModified());
+        Assertions.assertTrue(waitFor(() -> file.lastModified() != time));
 
         Assertions.assertTrue(manager.processCommand(player1, "raids", Collections.singletonList("exit"), allPerms));
 
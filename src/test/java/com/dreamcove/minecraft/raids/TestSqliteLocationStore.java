@@ -0,0 +1,108 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.api.WorldLocation;
+import com.dreamcove.minecraft.raids.config.Point;
+import com.dreamcove.minecraft.raids.utils.FileUtilities;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+
+public class TestSqliteLocationStore {
+    private final File dataDirectory = new File(new File(new File("target"), "test-data"), "sqlite");
+    private final File databaseFile = new File(dataDirectory, "locations.db");
+
+    @BeforeEach
+    public void setup() throws IOException {
+        FileUtilities.deleteFile(dataDirectory);
+    }
+
+    private static WorldLocation location(String worldName, double x) {
+        return new WorldLocation(worldName, new Point(x, 64, -x), 90, -10);
+    }
+
+    @Test
+    public void testPutReplaceRemove() throws IOException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+
+        try (SqliteLocationStore store = new SqliteLocationStore(databaseFile)) {
+            store.put(first, location("world", 1));
+            store.put(second, location("nether", 2));
+            store.put(third, location("end", 3));
+            store.flush();
+
+            // Replace after the first write and before the second
+            store.put(first, location("world", 10));
+            Assertions.assertEquals(10.0, store.get(first).getPoint().getX());
+
+            Assertions.assertEquals("nether", store.remove(second).getWorldName());
+            Assertions.assertNull(store.remove(second));
+            Assertions.assertNull(store.get(second));
+            Assertions.assertNull(store.remove(UUID.randomUUID()));
+
+            Assertions.assertEquals(2, store.size());
+        }
+
+        try (SqliteLocationStore store = new SqliteLocationStore(databaseFile)) {
+            Assertions.assertEquals(2, store.size());
+
+            WorldLocation location = store.get(first);
+            Assertions.assertEquals("world", location.getWorldName());
+            Assertions.assertEquals(10.0, location.getPoint().getX());
+            Assertions.assertEquals(-10.0, location.getPoint().getZ());
+            Assertions.assertEquals(90f, location.getYaw());
+            Assertions.assertEquals(-10f, location.getPitch());
+            Assertions.assertNull(store.get(second));
+            Assertions.assertEquals("end", store.get(third).getWorldName());
+
+            Map<UUID, String> all = new HashMap<>();
+            store.forEach((player, l) -> all.put(player, l.getWorldName()));
+            Assertions.assertEquals(2, all.size());
+            Assertions.assertEquals("end", all.get(third));
+        }
+    }
+
+    @Test
+    public void testChangesWhileWriting() {
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            List<UUID> players = new ArrayList<>();
+            Set<UUID> removed = new HashSet<>();
+
+            try (SqliteLocationStore store = new SqliteLocationStore(databaseFile)) {
+                // Keep the writer busy with several batches while the same players change again
+                for (int i = 0; i < 3000; i++) {
+                    UUID player = UUID.randomUUID();
+                    players.add(player);
+                    store.put(player, location("world", i));
+
+                    if (i % 10 == 0) {
+                        UUID earlier = players.get(i / 2);
+                        store.put(earlier, location("world", -1));
+
+                        if (store.remove(earlier) != null) {
+                            removed.add(earlier);
+                        }
+                    }
+                }
+
+                // Returns once every change is written instead of waiting on the idle writer
+                store.flush();
+                Assertions.assertEquals(players.size() - removed.size(), store.size());
+            }
+
+            try (SqliteLocationStore store = new SqliteLocationStore(databaseFile)) {
+                Assertions.assertEquals(players.size() - removed.size(), store.size());
+
+                for (UUID player : removed) {
+                    Assertions.assertNull(store.get(player));
+                }
+            }
+        });
+    }
+}
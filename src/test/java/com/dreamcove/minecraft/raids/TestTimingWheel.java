@@ -0,0 +1,83 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.utils.TimingWheel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestTimingWheel {
+
+    private static void advance(TimingWheel wheel, long ticks) {
+        for (long i = 0; i < ticks; i++) {
+            wheel.advance();
+        }
+    }
+
+    @Test
+    public void testOrdering() {
+        TimingWheel wheel = new TimingWheel();
+        List<Long> fired = new ArrayList<>();
+
+        // Deadlines on every level, including beyond the top one
+        long[] delays = {1, 3, 63, 64, 65, 4095, 4096, 300000, 16777216, 20000000};
+
+        for (long delay : delays) {
+            wheel.schedule(delay, () -> fired.add(wheel.getTick() - delay));
+        }
+
+        Assertions.assertEquals(delays.length, wheel.getSize());
+
+        advance(wheel, 20000000);
+
+        // Every task ran exactly at its deadline
+        Assertions.assertEquals(delays.length, fired.size());
+        fired.forEach(start -> Assertions.assertEquals(0, start.longValue()));
+        Assertions.assertEquals(0, wheel.getSize());
+    }
+
+    @Test
+    public void testCancel() {
+        TimingWheel wheel = new TimingWheel();
+        List<String> fired = new ArrayList<>();
+
+        TimingWheel.Timeout first = wheel.schedule(10, () -> fired.add("first"));
+        TimingWheel.Timeout second = wheel.schedule(5000, () -> fired.add("second"));
+        wheel.schedule(10, () -> fired.add("third"));
+
+        Assertions.assertTrue(second.cancel());
+        Assertions.assertFalse(second.cancel());
+
+        advance(wheel, 10);
+
+        Assertions.assertTrue(first.isExpired());
+        Assertions.assertFalse(first.cancel());
+
+        advance(wheel, 5000);
+
+        Assertions.assertEquals(Arrays.asList("first", "third"), fired);
+        Assertions.assertEquals(0, wheel.getSize());
+    }
+
+    @Test
+    public void testRescheduleFromTask() {
+        TimingWheel wheel = new TimingWheel();
+        List<Long> fired = new ArrayList<>();
+
+        wheel.schedule(100, new Runnable() {
+            @Override
+            public void run() {
+                fired.add(wheel.getTick());
+                if (fired.size() < 3) {
+                    wheel.schedule(100, this);
+                }
+            }
+        });
+
+        advance(wheel, 1000);
+
+        Assertions.assertEquals(Arrays.asList(100L, 200L, 300L), fired);
+    }
+}
@@ -0,0 +1,152 @@
+package com.dreamcove.minecraft.raids;
+
+import com.dreamcove.minecraft.raids.config.Bounds;
+import com.dreamcove.minecraft.raids.config.PackageFormat;
+import com.dreamcove.minecraft.raids.config.Point;
+import com.dreamcove.minecraft.raids.utils.FileUtilities;
+import com.dreamcove.minecraft.raids.utils.ZipUtilities;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class TestZipUtilities {
+    private final File dataDirectory = new File(new File(new File("target"), "test-data"), "zip");
+    private File arenaFile;
+
+    @BeforeEach
+    public void testSetup() throws IOException {
+        FileUtilities.deleteFile(dataDirectory);
+        dataDirectory.mkdirs();
+
+        arenaFile = new File(dataDirectory, "arena.zip");
+
+        try (InputStream is = TestZipUtilities.class.getClassLoader().getResourceAsStream("dungeons/arena.zip")) {
+            Assertions.assertNotNull(is);
+            Files.copy(is, arenaFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws IOException {
+        File sequentialDir = new File(dataDirectory, "sequential");
+        File parallelDir = new File(dataDirectory, "parallel");
+
+        ZipUtilities.extract(arenaFile, sequentialDir, DungeonTemplateCache::isWorldEntry);
+        ZipUtilities.extract(arenaFile, parallelDir, DungeonTemplateCache::isWorldEntry, 4);
+
+        Map<String, String> sequential = listContents(sequentialDir);
+
+        Assertions.assertFalse(sequential.containsKey("uid.dat"));
+        Assertions.assertFalse(sequential.containsKey("session.lock"));
+        Assertions.assertEquals(sequential, listContents(parallelDir));
+    }
+
+    @Test
+    public void testMixedPackageFormat() throws IOException {
+        File worldDir = new File(dataDirectory, "world");
+        ZipUtilities.extract(arenaFile, worldDir, DungeonTemplateCache::isWorldEntry, 2);
+        Files.write(new File(worldDir, "notes.txt").toPath(), "dungeon notes".getBytes());
+
+        File dungeonFile = new File(dataDirectory, "mixed.zip");
+        new DungeonPackager(PackageFormat.MIXED, 4).packageWorld(worldDir, dungeonFile);
+
+        try (ZipFile zip = new ZipFile(dungeonFile)) {
+            Assertions.assertEquals(ZipEntry.STORED, zip.getEntry("region/r.0.0.mca").getMethod());
+            Assertions.assertEquals(ZipEntry.STORED, zip.getEntry("level.dat").getMethod());
+            Assertions.assertEquals(ZipEntry.DEFLATED, zip.getEntry("notes.txt").getMethod());
+        }
+
+        File extractedDir = new File(dataDirectory, "extracted");
+        ZipUtilities.extract(dungeonFile, extractedDir, DungeonTemplateCache::isWorldEntry, 2);
+
+        Assertions.assertEquals(listContents(worldDir), listContents(extractedDir));
+    }
+
+    @Test
+    public void testParallelPackageIsDeterministic() throws IOException {
+        File worldDir = new File(dataDirectory, "world");
+        ZipUtilities.extract(arenaFile, worldDir, DungeonTemplateCache::isWorldEntry, 2);
+
+        File serialFile = new File(dataDirectory, "serial.zip");
+        File parallelFile = new File(dataDirectory, "parallel.zip");
+        new DungeonPackager(PackageFormat.DEFLATE, 1).packageWorld(worldDir, serialFile);
+        new DungeonPackager(PackageFormat.DEFLATE, 4).packageWorld(worldDir, parallelFile);
+
+        Assertions.assertEquals(FileUtilities.hash(serialFile), FileUtilities.hash(parallelFile));
+    }
+
+    @Test
+    public void testIncrementalPackage() throws IOException {
+        File worldDir = new File(dataDirectory, "world");
+        ZipUtilities.extract(arenaFile, worldDir, DungeonTemplateCache::isWorldEntry, 2);
+
+        File dungeonFile = new File(dataDirectory, "incremental.zip");
+        DungeonPackager packager = new DungeonPackager(PackageFormat.MIXED, 4);
+
+        DungeonPackager.Result first = packager.packageWorld(worldDir, dungeonFile);
+        Assertions.assertEquals(0, first.getReused());
+        Assertions.assertTrue(DungeonManifest.getManifestFile(dungeonFile).exists());
+
+        // Touch one file without changing it, change another and add a new one
+        File levelFile = new File(worldDir, "level.dat");
+        levelFile.setLastModified(levelFile.lastModified() + 5000);
+        Files.write(new File(worldDir, "region/r.0.0.mca").toPath(), "changed".getBytes());
+        Files.write(new File(worldDir, "notes.txt").toPath(), "dungeon notes".getBytes());
+
+        DungeonPackager.Result second = packager.packageWorld(worldDir, dungeonFile);
+        Assertions.assertEquals(2, second.getCompressed());
+        Assertions.assertEquals(first.getCompressed() - 1, second.getReused());
+
+        File extractedDir = new File(dataDirectory, "extracted");
+        ZipUtilities.extract(dungeonFile, extractedDir, DungeonTemplateCache::isWorldEntry, 2);
+
+        Assertions.assertEquals(listContents(worldDir), listContents(extractedDir));
+    }
+
+    @Test
+    public void testOptimizer() throws IOException {
+        DungeonOptimizer optimizer = new DungeonOptimizer(
+                Arrays.asList("poi", "data/raids.dat"),
+                new Bounds(new Point(0, 0, 0), new Point(100, 255, 100)),
+                2);
+
+        DungeonOptimizer.Result result = optimizer.optimize(arenaFile);
+
+        Assertions.assertTrue(result.getSizeAfter() < result.getSizeBefore());
+
+        try (ZipFile zip = new ZipFile(arenaFile)) {
+            Assertions.assertNotNull(zip.getEntry("region/r.0.0.mca"));
+            Assertions.assertNotNull(zip.getEntry("level.dat"));
+            Assertions.assertNull(zip.getEntry("region/r.-1.-1.mca"));
+            Assertions.assertNull(zip.getEntry("poi/r.0.0.mca"));
+            Assertions.assertNull(zip.getEntry("data/raids.dat"));
+        }
+    }
+
+    private Map<String, String> listContents(File directory) throws IOException {
+        Map<String, String> result = new TreeMap<>();
+        Path root = directory.toPath();
+
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                String hash = Files.isDirectory(path) ? "" : FileUtilities.hash(path.toFile());
+                result.put(root.relativize(path).toString().replace(File.separatorChar, '/'), hash);
+            }
+        }
+
+        return result;
+    }
+}